@@ -0,0 +1,188 @@
+package com.mornary.benchmark;
+
+import com.mornary.model.EntryStatistics;
+import com.mornary.model.MorseDictionary;
+import com.mornary.model.SegmentStore;
+import com.mornary.model.WeightedDictionary;
+import com.mornary.service.EncodeService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Profiles which dictionary entries affect the encoder's output, and writes a pruned set of dictionaries that keeps only those.
+ * <p>
+ * Many dictionary entries are never chosen, because higher scoring entries match the same bit patterns, yet every entry costs
+ * heap and load time. This tool encodes a corpus (random data, plus any files supplied) with entry statistics enabled (see
+ * {@link MorseDictionary#enableEntryStatistics()}), then:
+ * <ul>
+ *     <li>prints, per dictionary file, how many of its entries were candidates and how many were chosen at least once;</li>
+ *     <li>writes entry-statistics.csv, with how often each entry was a candidate and how often it won;</li>
+ *     <li>writes a pruned copy of each dictionary file, keeping the entries that won at least the given number of times, in
+ *     their original order.</li>
+ * </ul>
+ * The pruned files have the same names as the originals, so they can replace them on the class path. Run with
+ * {@code ./gradlew profileDictionaries}; see the README for its properties.
+ *
+ * @author John Mortimore
+ */
+public class DictionaryProfiler {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * Runs the profiler.
+     *
+     * @param args The output directory, the megabytes of random data to encode, the minimum number of wins for an entry to be
+     *             kept, and then any number of corpus files or directories to encode as well.
+     */
+    public static void main(String[] args) throws IOException {
+        final Path outputDirectory = Path.of(args[0]);
+        final int randomMegabytes = Integer.parseInt(args[1]);
+        final long minWins = Long.parseLong(args[2]);
+        final List<Path> corpus = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            try (Stream<Path> files = Files.walk(Path.of(args[i]))) {
+                files.filter(Files::isRegularFile).forEach(corpus::add);
+            }
+        }
+
+        final MorseDictionary dictionary = MorseDictionary.getInstance(EncodeService.DICTIONARIES);
+        final EntryStatistics statistics = dictionary.enableEntryStatistics();
+
+        // The encoder prints its progress to the console, which would be mixed up with the results.
+        final PrintStream results = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long corpusBytes = 0;
+        try (EncodeService encodeService = new EncodeService(1024, Runtime.getRuntime().availableProcessors(), false)) {
+            final Random random = new Random(48);
+            final byte[] buffer = new byte[(int) MEGABYTE];
+            for (int i = 0; i < randomMegabytes; i++) {
+                random.nextBytes(buffer);
+                encodeService.encodeAll(List.of(buffer));
+                corpusBytes += buffer.length;
+            }
+            for (Path file : corpus) {
+                final byte[] data = Files.readAllBytes(file);
+                encodeService.encodeAll(List.of(data));
+                corpusBytes += data.length;
+            }
+        } finally {
+            System.setOut(results);
+        }
+
+        Files.createDirectories(outputDirectory);
+        writeEntryStatistics(dictionary.getSegmentStore(), statistics, outputDirectory.resolve("entry-statistics.csv"));
+
+        final Map<String, Integer> segmentIds = indexSegments(dictionary.getSegmentStore());
+        results.printf("Encoded %.1f MB (%d MB of random data and %d corpus files)%n%n", corpusBytes / (double) MEGABYTE,
+            randomMegabytes, corpus.size());
+        results.printf("%-22s %9s %11s %9s %12s %9s%n", "dictionary", "entries", "candidates", "winners", "wins", "kept");
+        for (WeightedDictionary weightedDictionary : dictionary.getDictionaries()) {
+            pruneDictionary(weightedDictionary, segmentIds, statistics, minWins, outputDirectory, results);
+        }
+        results.printf("%nPruned dictionaries written to %s%n", outputDirectory.toAbsolutePath());
+    }
+
+    /**
+     * Maps the English text of every entry, in lower case, to its id in the segment store.
+     *
+     * @param segmentStore The segment store.
+     * @return The ids, by text.
+     */
+    private static Map<String, Integer> indexSegments(SegmentStore segmentStore) {
+        final Map<String, Integer> segmentIds = new HashMap<>(segmentStore.size() * 2);
+        for (int id = 0; id < segmentStore.size(); id++) {
+            segmentIds.put(segmentStore.getEnglish(id).toLowerCase(Locale.US), id);
+        }
+        return segmentIds;
+    }
+
+    /**
+     * Writes a pruned copy of a dictionary file, and prints its statistics. An entry of the dictionary is counted, and kept, by
+     * the statistics of its text segment, which it shares with the same text in any other dictionary.
+     *
+     * @param weightedDictionary The dictionary file.
+     * @param segmentIds         The id of every text segment, by its text in lower case.
+     * @param statistics         The entry statistics.
+     * @param minWins            The number of wins an entry needs to be kept.
+     * @param outputDirectory    The directory to write the pruned dictionary file to.
+     * @param results            The stream to print the statistics to.
+     */
+    private static void pruneDictionary(WeightedDictionary weightedDictionary, Map<String, Integer> segmentIds,
+                                        EntryStatistics statistics, long minWins, Path outputDirectory, PrintStream results)
+        throws IOException {
+        final String filename = weightedDictionary.filename();
+        long entries = 0;
+        long candidates = 0;
+        long winners = 0;
+        long wins = 0;
+        long kept = 0;
+
+        try (
+            InputStream is = DictionaryProfiler.class.getResourceAsStream(filename);
+            BufferedWriter writer = Files.newBufferedWriter(outputDirectory.resolve(filename.substring(1)))
+        ) {
+            if (is == null) {
+                throw new IOException("Dictionary not found: " + filename);
+            }
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String englishText;
+            while ((englishText = reader.readLine()) != null) {
+                entries++;
+                final Integer segmentId = segmentIds.get(englishText.toLowerCase(Locale.US));
+                if (segmentId == null) { // Not encodable, so not in the trie.
+                    continue;
+                }
+
+                final long segmentWins = statistics.getWins(segmentId);
+                candidates += statistics.getCandidates(segmentId) > 0 ? 1 : 0;
+                winners += segmentWins > 0 ? 1 : 0;
+                wins += segmentWins;
+                if (segmentWins >= minWins) {
+                    writer.write(englishText);
+                    writer.newLine();
+                    kept++;
+                }
+            }
+        }
+
+        results.printf("%-22s %9d %11d %9d %12d %9d%n", filename.substring(1), entries, candidates, winners, wins, kept);
+    }
+
+    /**
+     * Writes how often each entry was a candidate and how often it won, as CSV.
+     *
+     * @param segmentStore The segment store.
+     * @param statistics   The entry statistics.
+     * @param file         The file to write.
+     */
+    private static void writeEntryStatistics(SegmentStore segmentStore, EntryStatistics statistics, Path file)
+        throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("text,bits,candidates,wins");
+            writer.newLine();
+            for (int id = 0; id < segmentStore.size(); id++) {
+                writer.write("\"" + segmentStore.getEnglish(id) + "\"," + segmentStore.getBitLength(id) + ","
+                    + statistics.getCandidates(id) + "," + statistics.getWins(id));
+                writer.newLine();
+            }
+        }
+    }
+}
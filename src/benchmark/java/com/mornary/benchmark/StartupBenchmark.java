@@ -0,0 +1,116 @@
+package com.mornary.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long short CLI runs take to produce their first byte of output, and to exit, in a fresh JVM. This is what a user
+ * waits for when encoding or decoding a short message, and it is dominated by startup (class loading, static initializers, and
+ * loading the dictionaries) rather than by encoding.
+ * <p>
+ * Each command is run in a new JVM with the same class path as this benchmark, once to warm up the file system cache and then
+ * the given number of times. Run with {@code ./gradlew startupBenchmark}.
+ *
+ * @author John Mortimore
+ */
+public class StartupBenchmark {
+
+    private static final String MESSAGE = "Hello World!";
+
+    /**
+     * The Morse code of {@link #MESSAGE}, as in the README.
+     */
+    private static final String ENCODED_MESSAGE = ".-. . -.. . . -- . .-. / - . -- .--. . .- -. / -- . ..- - . / "
+        + "--- -..- .... . .- .-. - / -- .- -. / - --- / .- -- .. -. .- - . / --. .. - - .. - .... / - .. . / . / -";
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of runs per command. Defaults to 10.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        final Path directory = Files.createTempDirectory("mornary-startup");
+        final File plainFile = directory.resolve("message.txt").toFile();
+        final File encodedFile = directory.resolve("message.morse").toFile();
+        Files.writeString(plainFile.toPath(), MESSAGE, StandardCharsets.UTF_8);
+        Files.writeString(encodedFile.toPath(), ENCODED_MESSAGE, StandardCharsets.UTF_8);
+
+        final Map<String, List<String>> commands = new LinkedHashMap<>();
+        commands.put("-e", List.of("-e", MESSAGE));
+        commands.put("-d", List.of("-d", ENCODED_MESSAGE));
+        commands.put("-E", List.of("-E", plainFile.getPath()));
+        commands.put("-D", List.of("-D", encodedFile.getPath()));
+
+        try {
+            System.out.printf("%-8s %28s %28s%n", "", "first output (ms)", "exit (ms)");
+            System.out.printf("%-8s %8s %9s %9s %9s %9s %9s%n", "command", "min", "median", "max", "min", "median", "max");
+            for (Map.Entry<String, List<String>> command : commands.entrySet()) {
+                run(command.getValue()); // Warm-up.
+
+                final long[] firstOutput = new long[runs];
+                final long[] exit = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    final long[] timings = run(command.getValue());
+                    firstOutput[i] = timings[0];
+                    exit[i] = timings[1];
+                }
+                Arrays.sort(firstOutput);
+                Arrays.sort(exit);
+
+                System.out.printf("%-8s %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", command.getKey(),
+                    millis(firstOutput[0]), millis(firstOutput[runs / 2]), millis(firstOutput[runs - 1]),
+                    millis(exit[0]), millis(exit[runs / 2]), millis(exit[runs - 1]));
+            }
+        } finally {
+            Files.deleteIfExists(plainFile.toPath());
+            Files.deleteIfExists(encodedFile.toPath());
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Runs Mornary in a new JVM.
+     *
+     * @param arguments The command line arguments.
+     * @return The nanoseconds from starting the JVM to its first byte of standard output, and to its exit.
+     */
+    private static long[] run(List<String> arguments) throws IOException, InterruptedException {
+        final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        final List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path"),
+            "com.mornary.Mornary"));
+        command.addAll(arguments);
+
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+
+        final long firstOutput;
+        try (InputStream stdout = process.getInputStream()) {
+            if (stdout.read() < 0) {
+                throw new IllegalStateException("No output from " + arguments);
+            }
+            firstOutput = System.nanoTime() - start;
+            stdout.transferTo(OutputStream.nullOutputStream());
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Exit code " + process.exitValue() + " from " + arguments);
+        }
+        return new long[] {firstOutput, System.nanoTime() - start};
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
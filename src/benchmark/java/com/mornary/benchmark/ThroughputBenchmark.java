@@ -0,0 +1,354 @@
+package com.mornary.benchmark;
+
+import com.mornary.converter.ByteSizeConverter;
+import com.mornary.metrics.PipelineMetrics;
+import com.mornary.service.DecodeService;
+import com.mornary.service.EncodeService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Measures end-to-end file encoding and decoding: throughput, peak memory, and output quality, for a range of payloads, thread
+ * counts, and work unit sizes. Unlike a microbenchmark, this includes reading and writing files, the reorder buffer, and the
+ * thread pool, so it shows pipeline effects such as reorder stalls and I/O waits. It is the baseline to compare performance
+ * changes against, and since throughput tuning can quietly make the output read less like English, it reports the quality of
+ * the output alongside its speed.
+ * <p>
+ * Payloads are generated into a temporary directory: English text, random bytes, zero-filled data, JSON log lines, and a ZIP
+ * archive of text. Each combination of payload, size, thread count, and work unit size is run in a new JVM with the same class
+ * path as this benchmark, so that peak RSS is measured per run. The dictionaries are loaded before timing starts. For each run
+ * the benchmark reports:
+ * <ul>
+ *     <li>encode and decode throughput, in MB of payload per second;</li>
+ *     <li>the peak resident set size of the JVM (Linux only);</li>
+ *     <li>the share of output letters that are in dictionary words rather than fallback letters (see
+ *     {@link PipelineMetrics#getFallbackLetters()}).</li>
+ * </ul>
+ * Run with {@code ./gradlew throughputBenchmark}; see the README for the properties that select the payloads and settings.
+ *
+ * @author John Mortimore
+ */
+public class ThroughputBenchmark {
+
+    private static final String RUN = "--run";
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The payload sizes (e.g. 1m,16m,1g), thread counts, work unit sizes, and payload types, each as a comma
+     *             separated list. Defaults to 1m,16m, 1,4, 1024,4096, and text,random,zero,log,zip. Internally, a single run is
+     *             started with {@value #RUN} followed by the payload file, thread count, and work unit size.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && RUN.equals(args[0])) {
+            run(Path.of(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        final ByteSizeConverter byteSizeConverter = new ByteSizeConverter();
+        final long[] sizes = Arrays.stream(argument(args, 0, "1m,16m")).mapToLong(byteSizeConverter::convert).toArray();
+        final int[] threadCounts = Arrays.stream(argument(args, 1, "1,4")).mapToInt(Integer::parseInt).toArray();
+        final int[] workUnitSizes = Arrays.stream(argument(args, 2, "1024,4096")).mapToInt(Integer::parseInt).toArray();
+        final String[] payloads = argument(args, 3, "text,random,zero,log,zip");
+
+        final Path directory = Files.createTempDirectory("mornary-throughput");
+        try {
+            System.out.printf("%-7s %9s %7s %9s %12s %12s %13s %12s%n", "payload", "size (MB)", "threads", "work unit",
+                "encode MB/s", "decode MB/s", "peak RSS (MB)", "dictionary %");
+            for (String payload : payloads) {
+                for (long size : sizes) {
+                    final Path payloadFile = directory.resolve(payload + "-" + size + ".bin");
+                    generatePayload(payload, size, payloadFile);
+                    try {
+                        for (int threads : threadCounts) {
+                            for (int workUnitSize : workUnitSizes) {
+                                final String result = runInNewJvm(payloadFile, threads, workUnitSize);
+                                System.out.printf("%-7s %9.1f %7d %9d %s%n", payload, size / (double) MEGABYTE, threads,
+                                    workUnitSize, result);
+                            }
+                        }
+                    } finally {
+                        Files.deleteIfExists(payloadFile);
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Retrieves a comma separated list from the arguments.
+     *
+     * @param args         The arguments.
+     * @param index        The index of the list in the arguments.
+     * @param defaultValue The list to use if the argument is missing or blank.
+     * @return The items of the list.
+     */
+    private static String[] argument(String[] args, int index, String defaultValue) {
+        return (args.length > index && !args[index].isBlank() ? args[index] : defaultValue).split(",");
+    }
+
+    /**
+     * Runs a single encode and decode of a payload in a new JVM.
+     *
+     * @param payloadFile  The payload.
+     * @param threads      The encoder's thread pool size.
+     * @param workUnitSize The work unit size of the encoder and decoder.
+     * @return The formatted results of the run.
+     */
+    private static String runInNewJvm(Path payloadFile, int threads, int workUnitSize) throws IOException, InterruptedException {
+        final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        final List<String> command = List.of(java, "-cp", System.getProperty("java.class.path"),
+            ThroughputBenchmark.class.getName(), RUN, payloadFile.toString(), Integer.toString(threads),
+            Integer.toString(workUnitSize));
+
+        final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final String result;
+        try (InputStream stdout = process.getInputStream()) {
+            result = new String(stdout.readAllBytes(), StandardCharsets.UTF_8).stripTrailing();
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Exit code " + process.exitValue() + " from " + command);
+        }
+        return result;
+    }
+
+    /**
+     * Encodes and decodes a payload, checks that the decoded payload matches it, and prints the results. This is the body of a
+     * run in a new JVM.
+     *
+     * @param payloadFile  The payload.
+     * @param threads      The encoder's thread pool size.
+     * @param workUnitSize The work unit size of the encoder and decoder.
+     */
+    private static void run(Path payloadFile, int threads, int workUnitSize) throws IOException {
+        // The services print their progress to the console, which would be mixed up with the results.
+        final PrintStream results = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        final File encoded = new File(payloadFile + ".morse");
+        final File decoded = new File(payloadFile + ".decoded");
+        try (EncodeService encodeService = new EncodeService(workUnitSize, threads, false)) {
+            final PipelineMetrics metrics = PipelineMetrics.getInstance();
+            metrics.reset();
+
+            final long encodeStart = System.nanoTime();
+            encodeService.encode(payloadFile.toFile(), encoded);
+            final long encodeNanos = System.nanoTime() - encodeStart;
+            final long fallbackLetters = metrics.getFallbackLetters();
+
+            final long decodeStart = System.nanoTime();
+            new DecodeService(workUnitSize).decode(encoded, decoded);
+            final long decodeNanos = System.nanoTime() - decodeStart;
+
+            if (Files.mismatch(payloadFile, decoded.toPath()) != -1) {
+                throw new IllegalStateException("Decoded payload does not match " + payloadFile);
+            }
+
+            final long letters = countLetters(encoded.toPath());
+            final double megabytes = Files.size(payloadFile) / (double) MEGABYTE;
+            final long peakRss = readPeakRss();
+            results.printf("%12.2f %12.2f %13s %12.2f%n", megabytes / (encodeNanos / 1e9), megabytes / (decodeNanos / 1e9),
+                peakRss < 0 ? "n/a" : Long.toString(peakRss / MEGABYTE),
+                letters == 0 ? 100.0 : 100.0 * (letters - fallbackLetters) / letters);
+        } finally {
+            Files.deleteIfExists(encoded.toPath());
+            Files.deleteIfExists(decoded.toPath());
+        }
+    }
+
+    /**
+     * Counts the letters in a Mornary-encoded file, i.e. the runs of dots and dashes.
+     *
+     * @param encoded The encoded file.
+     * @return The number of letters.
+     */
+    private static long countLetters(Path encoded) throws IOException {
+        long letters = 0;
+        boolean inLetter = false;
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(encoded), 64 * 1024)) {
+            int b;
+            while ((b = is.read()) >= 0) {
+                final boolean symbol = b == '.' || b == '-';
+                if (symbol && !inLetter) {
+                    letters++;
+                }
+                inLetter = symbol;
+            }
+        }
+        return letters;
+    }
+
+    /**
+     * Reads the peak resident set size of this JVM from /proc/self/status.
+     *
+     * @return The peak RSS, in bytes, or -1 if it is not available on this platform.
+     */
+    private static long readPeakRss() {
+        final Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Generates a payload file.
+     *
+     * @param type The type of payload: text, random, zero, log, or zip.
+     * @param size The size of the payload, in bytes. ZIP archives are a little larger, as their last entry is completed.
+     * @param file The file to write.
+     */
+    private static void generatePayload(String type, long size, Path file) throws IOException {
+        final Random random = new Random(size);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            switch (type) {
+                case "text" -> writeText(os, size, random, loadWords());
+                case "random" -> {
+                    final byte[] buffer = new byte[64 * 1024];
+                    for (long written = 0; written < size; written += buffer.length) {
+                        random.nextBytes(buffer);
+                        os.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+                    }
+                }
+                case "zero" -> {
+                    final byte[] buffer = new byte[64 * 1024];
+                    for (long written = 0; written < size; written += buffer.length) {
+                        os.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+                    }
+                }
+                case "log" -> writeLog(os, size, random, loadWords());
+                case "zip" -> writeZip(os, size, random, loadWords());
+                default -> throw new IllegalArgumentException("Unknown payload type: " + type);
+            }
+        }
+    }
+
+    /**
+     * Writes lines of random English words.
+     */
+    private static void writeText(OutputStream os, long size, Random random, List<String> words) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        long written = 0;
+        while (written < size) {
+            line.setLength(0);
+            final int wordCount = 8 + random.nextInt(8);
+            for (int i = 0; i < wordCount; i++) {
+                line.append(i == 0 ? "" : " ").append(words.get(random.nextInt(words.size())));
+            }
+            line.append(".\n");
+
+            final byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+            final int length = (int) Math.min(bytes.length, size - written);
+            os.write(bytes, 0, length);
+            written += length;
+        }
+    }
+
+    /**
+     * Writes JSON log lines, like those of a web service.
+     */
+    private static void writeLog(OutputStream os, long size, Random random, List<String> words) throws IOException {
+        final String[] levels = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+        long timestamp = 1_700_000_000_000L;
+        long written = 0;
+        while (written < size) {
+            timestamp += random.nextInt(500);
+            final String message = words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size()));
+            final String line = String.format("{\"timestamp\":%d,\"level\":\"%s\",\"thread\":\"worker-%d\",\"message\":\"%s\","
+                    + "\"latencyMs\":%d,\"status\":%d}%n", timestamp, levels[random.nextInt(levels.length)], random.nextInt(16),
+                message, random.nextInt(2000), random.nextBoolean() ? 200 : 404);
+
+            final byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            final int length = (int) Math.min(bytes.length, size - written);
+            os.write(bytes, 0, length);
+            written += length;
+        }
+    }
+
+    /**
+     * Writes a ZIP archive of text files, until the archive is at least the given size.
+     */
+    private static void writeZip(OutputStream os, long size, Random random, List<String> words) throws IOException {
+        final CountingOutputStream counter = new CountingOutputStream(os);
+        try (ZipOutputStream zip = new ZipOutputStream(counter)) {
+            for (int entry = 0; counter.count < size; entry++) {
+                zip.putNextEntry(new ZipEntry("document-" + entry + ".txt"));
+                writeText(zip, MEGABYTE, random, words);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Loads the words of the common English dictionary, which text payloads are made of.
+     *
+     * @return The words.
+     */
+    private static List<String> loadWords() throws IOException {
+        try (InputStream is = ThroughputBenchmark.class.getResourceAsStream("/English5000.txt")) {
+            if (is == null) {
+                throw new IOException("Dictionary not found: /English5000.txt");
+            }
+            return new BufferedReader(new InputStreamReader(is, StandardCharsets.US_ASCII)).lines().toList();
+        }
+    }
+
+    /**
+     * An output stream that counts the bytes written through it, and does not close the underlying stream.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,15 +1,40 @@
 package com.mornary;
 
+import com.mornary.converter.AlphabetConverter;
+import com.mornary.converter.ByteRangeConverter;
+import com.mornary.converter.ByteSizeConverter;
+import com.mornary.converter.OptimizationConverter;
 import com.mornary.converter.PositiveIntConverter;
+import com.mornary.converter.ShardConverter;
 import com.mornary.configuration.ShortErrorMessageHandler;
+import com.mornary.model.Alphabet;
+import com.mornary.model.ByteRange;
+import com.mornary.model.EncodeEstimate;
+import com.mornary.model.EncodeOptions;
+import com.mornary.model.MemoryPlan;
+import com.mornary.model.Optimization;
+import com.mornary.model.RunReport;
+import com.mornary.model.Shard;
+import com.mornary.service.BatchService;
 import com.mornary.service.DecodeService;
 import com.mornary.service.EncodeService;
+import com.mornary.service.EstimateService;
+import com.mornary.service.MergeService;
+import com.mornary.service.ReportService;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.concurrent.Callable;
 
 /**
@@ -28,6 +53,11 @@ import java.util.concurrent.Callable;
 )
 public class Mornary implements Callable<Integer> {
 
+    /**
+     * The file name that stands for standard input.
+     */
+    private static final String STANDARD_INPUT = "-";
+
     @ArgGroup(multiplicity = "1")
     Operation operation;
 
@@ -42,7 +72,7 @@ public class Mornary implements Callable<Integer> {
         @Option(
             order = 1,
             names = {"-E", "--Encode"}, paramLabel = "<file>",
-            description = "Encodes the supplied file."
+            description = "Encodes the supplied file. Use - to read from standard input."
         )
         File encodeFile;
 
@@ -56,44 +86,257 @@ public class Mornary implements Callable<Integer> {
         @Option(
             order = 3,
             names = {"-D", "--Decode"}, paramLabel = "<file>",
-            description = "Decodes the Mornary-encoded contents of the supplied file."
+            description = "Decodes the Mornary-encoded contents of the supplied file. Use - to read from standard input."
         )
         File decodeFile;
+
+        @Option(
+            order = 4,
+            names = {"--batch-encode"}, paramLabel = "<path>",
+            description = "Encodes every file in the supplied directory, glob, or file list (one path per line). Requires -O to be an output directory."
+        )
+        String batchEncode;
+
+        @Option(
+            order = 5,
+            names = {"--batch-decode"}, paramLabel = "<path>",
+            description = "Decodes every file in the supplied directory, glob, or file list (one path per line). Requires -O to be an output directory."
+        )
+        String batchDecode;
+
+        @Option(
+            order = 6,
+            names = {"--merge"}, paramLabel = "<file>", arity = "1..*",
+            description = "Merges the outputs of a sharded encode (see --shard), in the order supplied, into a single Mornary-encoded output."
+        )
+        List<File> mergeFiles;
     }
 
+    @Spec
+    CommandSpec spec;
+
     @Option(
-        order = 4,
+        order = 7,
         names = {"-O", "--Output"}, paramLabel = "<file>",
-        description = "Writes the output to the supplied file. If omitted, output will be printed to the console."
+        description = "Writes the output to the supplied file (or directory, for batch operations). If omitted, output will be printed to the console."
     )
     File outputFile;
 
     @Option(
-        order = 5,
+        order = 8,
         names = {"-t", "--threads"}, paramLabel = "<int>", defaultValue = "10",
-        description = "Sets the thread pool size. Only used when encoding files. Defaults to 10.",
+        description = "Sets the thread pool size. Only used when encoding files or running batch operations. Defaults to 10.",
         converter = PositiveIntConverter.class
     )
     int numThreads;
 
     @Option(
-        order = 6,
+        order = 9,
         names = {"-m", "--low-memory"}, paramLabel = "<boolean>", defaultValue = "false",
         description = "Reduces the dictionary size in order to reduce the memory footprint of the app. Only used for encoding."
     )
     boolean lowMemory;
 
+    @Option(
+        order = 10,
+        names = {"--memory-budget"}, paramLabel = "<size>",
+        description = "Loads as many dictionaries, and queues as many work units, as fit into the supplied amount of heap (e.g. 256m or 1g). Cannot be combined with -m. Only used for encoding.",
+        converter = ByteSizeConverter.class
+    )
+    Long memoryBudget;
+
+    @Option(
+        order = 11,
+        names = {"-z", "--compress"}, paramLabel = "<boolean>", defaultValue = "false",
+        description = "Compresses the input before encoding it, which shortens the output of compressible inputs. Decoding detects compressed input automatically. Only used for encoding."
+    )
+    boolean compress;
+
+    @Option(
+        order = 12,
+        names = {"--optimize"}, paramLabel = "<goal>", defaultValue = "words",
+        description = "Sets what the encoder optimizes for: words (output that reads as English words) or size (the fewest output characters per bit of input, about 10% less output, still made of dictionary words where possible). Defaults to words. Only used for encoding.",
+        converter = OptimizationConverter.class
+    )
+    Optimization optimization;
+
+    @Option(
+        order = 13,
+        names = {"--alphabet"}, paramLabel = "<name>", split = ",", defaultValue = "latin",
+        description = "Adds extended Morse alphabets, separated by commas, whose characters the encoder may use alongside the Latin letters and digits: punctuation (ITU), cyrillic or wabun. Their longer codes let single characters match more of the input, which shortens the output where the dictionaries leave gaps (e.g. with -m). Decoding needs no option. Only used for encoding.",
+        converter = AlphabetConverter.class
+    )
+    Set<Alphabet> alphabets;
+
+    @Option(
+        order = 14,
+        names = {"--resume"}, paramLabel = "<boolean>", defaultValue = "false",
+        description = "Saves a checkpoint next to the output file (<file>.checkpoint) while encoding, and resumes from it if the encode was interrupted. Requires a file input (-E or --batch-encode) and -O."
+    )
+    boolean resume;
+
+    @Option(
+        order = 15,
+        names = {"--append"}, paramLabel = "<boolean>", defaultValue = "false",
+        description = "Encodes only what has been added to the input file since the previous --append encode to the same output, and appends it to the output. The progress is kept in a state file next to the output file (<file>.state). Also resumes an interrupted encode. Requires -E <file> and -O; cannot be combined with -z or --shard."
+    )
+    boolean append;
+
+    @Option(
+        order = 16,
+        names = {"--shard"}, paramLabel = "<i/n>",
+        description = "Encodes only the i-th of n equal, work unit aligned parts of the input file (e.g. 2/4), so that a large encode can be spread across processes or machines. Combine the outputs with --merge. Requires -E <file>; cannot be combined with -z.",
+        converter = ShardConverter.class
+    )
+    Shard shard;
+
+    @Option(
+        order = 17,
+        names = {"--index"}, paramLabel = "<boolean>", defaultValue = "false",
+        description = "Writes an index next to the output file (<file>.index) while encoding, so that parts of the output can be decoded with --range. Requires -E and -O; cannot be combined with -z or --shard."
+    )
+    boolean index;
+
+    @Option(
+        order = 18,
+        names = {"--range"}, paramLabel = "<start:len>",
+        description = "Decodes only the len bytes of the original input from offset start, reading just the part of the file that holds them. Requires -D <file> and the index written by --index.",
+        converter = ByteRangeConverter.class
+    )
+    ByteRange range;
+
+    @Option(
+        order = 19,
+        names = {"--estimate"}, paramLabel = "<boolean>", defaultValue = "false",
+        description = "Estimates the output size, encode time (with the supplied --threads), and peak heap of encoding the input file, with 95% intervals, by encoding a sample of its work units, instead of encoding it. Writes the estimate as JSON to -O if supplied. Requires -E <file>; cannot be combined with -z."
+    )
+    boolean estimate;
+
+    @Option(
+        order = 20,
+        names = {"--report"}, paramLabel = "<file>",
+        description = "Writes a JSON report of the run (sizes, throughput, stage timings, etc.) to the supplied file."
+    )
+    File reportFile;
+
+    /**
+     * How long the encode service took to load its dictionaries. Zero when decoding.
+     */
+    private Duration dictionaryLoadTime = Duration.ZERO;
+
     @Override
     public Integer call() throws Exception {
+        final ReportService reportService = this.reportFile != null ? new ReportService() : null;
+
+        final int exitCode = this.run();
 
-        if (this.operation.encodeText != null || this.operation.encodeFile != null) { // Encoding.
+        if (reportService != null) {
+            RunReport report = reportService.createReport(this.operationName(), this.inputName(), this.outputFile, this.dictionaryLoadTime);
+            reportService.writeReport(report, this.reportFile);
+        }
 
-            EncodeService encodeService = new EncodeService(1024, this.numThreads, this.lowMemory);
+        return exitCode;
+    }
 
-            if (this.operation.encodeText != null) {
-                encodeService.encode(this.operation.encodeText, this.outputFile);
+    /**
+     * Runs the selected operation.
+     *
+     * @return The exit code.
+     */
+    private int run() throws Exception {
+
+        if (this.resume && (this.outputFile == null || (this.operation.batchEncode == null && (this.operation.encodeFile == null
+            || isStandardInput(this.operation.encodeFile))))) {
+            throw new ParameterException(this.spec.commandLine(),
+                "--resume requires a file input (-E or --batch-encode) and an output (-O)");
+        }
+
+        if (this.append) {
+            if (this.operation.encodeFile == null || isStandardInput(this.operation.encodeFile) || this.outputFile == null) {
+                throw new ParameterException(this.spec.commandLine(), "--append requires a file input (-E) and an output (-O)");
+            }
+            if (this.compress || this.shard != null) {
+                throw new ParameterException(this.spec.commandLine(), "--append cannot be combined with --compress or --shard");
+            }
+        }
+
+        if (this.memoryBudget != null && this.lowMemory) {
+            throw new ParameterException(this.spec.commandLine(), "--memory-budget cannot be combined with --low-memory");
+        }
+
+        if (this.shard != null) {
+            if (this.operation.encodeFile == null || isStandardInput(this.operation.encodeFile)) {
+                throw new ParameterException(this.spec.commandLine(), "--shard requires a file input (-E)");
+            }
+            if (this.compress) {
+                throw new ParameterException(this.spec.commandLine(),
+                    "--shard cannot be combined with --compress, as the compressed size is not known in advance");
+            }
+        }
+
+        if (this.index) {
+            if (this.operation.encodeFile == null || this.outputFile == null) {
+                throw new ParameterException(this.spec.commandLine(), "--index requires a file input (-E) and an output (-O)");
+            }
+            if (this.compress || this.shard != null) {
+                throw new ParameterException(this.spec.commandLine(), "--index cannot be combined with --compress or --shard");
+            }
+        }
+
+        if (this.range != null && (this.operation.decodeFile == null || isStandardInput(this.operation.decodeFile))) {
+            throw new ParameterException(this.spec.commandLine(), "--range requires a file input (-D)");
+        }
+
+        if (this.estimate) {
+            if (this.operation.encodeFile == null || isStandardInput(this.operation.encodeFile)) {
+                throw new ParameterException(this.spec.commandLine(), "--estimate requires a file input (-E)");
+            }
+            if (this.compress) {
+                throw new ParameterException(this.spec.commandLine(),
+                    "--estimate cannot be combined with --compress, as the compressed size is not known without compressing the whole input");
+            }
+        }
+
+        if (this.operation.mergeFiles != null) { // Merging.
+            new MergeService().merge(this.operation.mergeFiles, this.outputFile);
+            return 0;
+        }
+
+        if (this.operation.batchEncode != null || this.operation.batchDecode != null) { // Batch.
+
+            if (this.outputFile == null) {
+                throw new ParameterException(this.spec.commandLine(), "Batch operations require an output directory (-O)");
+            }
+
+            int failures;
+            if (this.operation.batchEncode != null) {
+                try (EncodeService encodeService = this.createEncodeService()) {
+                    failures = new BatchService(encodeService, null, this.numThreads).encode(this.operation.batchEncode, this.outputFile);
+                }
             } else {
-                encodeService.encode(this.operation.encodeFile, this.outputFile);
+                DecodeService decodeService = new DecodeService(1024);
+                failures = new BatchService(null, decodeService, this.numThreads).decode(this.operation.batchDecode, this.outputFile);
+            }
+            return failures == 0 ? 0 : 1;
+
+        } else if (this.operation.encodeText != null || this.operation.encodeFile != null) { // Encoding.
+
+            try (EncodeService encodeService = this.createEncodeService()) {
+                if (this.estimate) {
+                    EstimateService estimateService = new EstimateService(encodeService);
+                    EncodeEstimate estimate = estimateService.estimate(this.operation.encodeFile);
+                    if (this.outputFile != null) {
+                        estimateService.writeEstimate(estimate, this.outputFile);
+                    } else {
+                        estimateService.printEstimate(estimate, System.out);
+                    }
+                } else if (this.operation.encodeText != null) {
+                    encodeService.encode(this.operation.encodeText, this.outputFile);
+                } else if (isStandardInput(this.operation.encodeFile)) {
+                    encodeService.encode(System.in, this.outputFile);
+                } else {
+                    encodeService.encode(this.operation.encodeFile, this.outputFile);
+                }
             }
 
         } else if (this.operation.decodeText != null || this.operation.decodeFile != null) { // Decoding.
@@ -102,6 +345,10 @@ public class Mornary implements Callable<Integer> {
 
             if (this.operation.decodeText != null) {
                 decodeService.decode(this.operation.decodeText, this.outputFile);
+            } else if (this.range != null) {
+                decodeService.decode(this.operation.decodeFile, this.outputFile, this.range);
+            } else if (isStandardInput(this.operation.decodeFile)) {
+                decodeService.decode(System.in, this.outputFile);
             } else {
                 decodeService.decode(this.operation.decodeFile, this.outputFile);
             }
@@ -110,6 +357,90 @@ public class Mornary implements Callable<Integer> {
         return 0;
     }
 
+    /**
+     * Checks if the given input file is the standard input placeholder, <code>-</code>.
+     *
+     * @param input The input file.
+     * @return True if the input should be read from standard input.
+     */
+    private static boolean isStandardInput(File input) {
+        return STANDARD_INPUT.equals(input.getPath());
+    }
+
+    /**
+     * Creates the encode service, recording how long its dictionaries took to load.
+     *
+     * @return The encode service.
+     */
+    private EncodeService createEncodeService() throws IOException {
+        EncodeOptions options = EncodeOptions.DEFAULT.withCompress(this.compress).withResume(this.resume).withShard(this.shard)
+            .withMemoryBudget(this.memoryBudget == null ? 0 : this.memoryBudget).withIndex(this.index)
+            .withAppend(this.append).withOptimization(this.optimization).withAlphabets(this.alphabets);
+
+        EncodeService encodeService;
+        try {
+            encodeService = new EncodeService(1024, this.numThreads, this.lowMemory, options);
+        } catch (IllegalArgumentException e) { // The memory budget is too small.
+            throw new ParameterException(this.spec.commandLine(), e.getMessage());
+        }
+        this.dictionaryLoadTime = encodeService.getDictionaryLoadTime();
+
+        MemoryPlan plan = encodeService.getMemoryPlan();
+        if (plan != null) {
+            System.err.printf("Memory budget: loaded %d of %d dictionaries, queue capacity %d, estimated peak heap %d MB.%n",
+                plan.dictionaryCount(), EncodeService.getNumberOfDictionaries(), plan.queueCapacity(), plan.estimatedBytes() >> 20);
+            if (this.memoryBudget > Runtime.getRuntime().maxMemory()) {
+                System.err.printf("Warning: the memory budget exceeds the maximum heap size (%d MB). Raise it with -Xmx.%n",
+                    Runtime.getRuntime().maxMemory() >> 20);
+            }
+        }
+        return encodeService;
+    }
+
+    /**
+     * Returns the name of the selected operation, for reporting.
+     *
+     * @return The operation name.
+     */
+    private String operationName() {
+        if (this.estimate) {
+            return "estimate";
+        } else if (this.operation.encodeText != null) {
+            return "encode-text";
+        } else if (this.operation.encodeFile != null) {
+            return "encode-file";
+        } else if (this.operation.decodeText != null) {
+            return "decode-text";
+        } else if (this.operation.decodeFile != null) {
+            return "decode-file";
+        } else if (this.operation.batchEncode != null) {
+            return "batch-encode";
+        } else if (this.operation.batchDecode != null) {
+            return "batch-decode";
+        } else {
+            return "merge";
+        }
+    }
+
+    /**
+     * Returns the input of the selected operation, for reporting.
+     *
+     * @return The input file, directory, or glob. Null for text inputs.
+     */
+    private String inputName() {
+        if (this.operation.encodeFile != null) {
+            return this.operation.encodeFile.getPath();
+        } else if (this.operation.decodeFile != null) {
+            return this.operation.decodeFile.getPath();
+        } else if (this.operation.batchEncode != null) {
+            return this.operation.batchEncode;
+        } else if (this.operation.batchDecode != null) {
+            return this.operation.batchDecode;
+        } else {
+            return this.operation.mergeFiles.stream().map(File::getPath).collect(Collectors.joining(","));
+        }
+    }
+
     /**
      * Main method.
      *
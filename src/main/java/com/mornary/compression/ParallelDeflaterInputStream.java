@@ -0,0 +1,188 @@
+package com.mornary.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Deflater;
+
+/**
+ * An input stream that compresses another input stream, reading a {@link PayloadHeader} followed by a raw deflate stream.
+ * <p>
+ * The input is split into chunks that are compressed in parallel on the supplied executor. Each chunk is compressed by its own
+ * {@link Deflater}, primed with the end of the previous chunk as its dictionary, and ends with a sync flush, so the concatenated
+ * chunks form a single deflate stream that any inflater can read. Only a bounded number of chunks are read ahead, so memory use
+ * does not depend on the size of the input.
+ *
+ * @author John Mortimore
+ */
+public class ParallelDeflaterInputStream extends InputStream {
+
+    /**
+     * The number of bytes of input per chunk.
+     */
+    static final int CHUNK_SIZE = 128 * 1024;
+
+    /**
+     * The maximum size of a deflate dictionary, i.e. how far back a deflate stream can refer.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final InputStream in;
+    private final Executor executor;
+    private final int maxChunksInFlight;
+
+    /**
+     * Chunks that have been submitted for compression, in input order.
+     */
+    private final Deque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+
+    /**
+     * The end of the last chunk read, for use as the next chunk's dictionary.
+     */
+    private byte[] dictionary = null;
+
+    private boolean endOfInput = false;
+
+    /**
+     * The compressed bytes currently being read, starting with the header.
+     */
+    private byte[] current = PayloadHeader.create(PayloadHeader.DEFLATE);
+    private int position = 0;
+
+    /**
+     * Constructs a new stream. Chunks are read from the input when this stream is read, and compressed on the executor.
+     *
+     * @param in                The stream to compress.
+     * @param executor          The executor to compress chunks on.
+     * @param maxChunksInFlight The maximum number of chunks that are read ahead and compressed concurrently.
+     */
+    public ParallelDeflaterInputStream(InputStream in, Executor executor, int maxChunksInFlight) {
+        this.in = in;
+        this.executor = executor;
+        this.maxChunksInFlight = Math.max(1, maxChunksInFlight);
+    }
+
+    /**
+     * Compresses the given data on the calling thread.
+     *
+     * @param data The data to compress.
+     * @return The header and the compressed data.
+     */
+    public static byte[] deflate(byte[] data) throws IOException {
+        try (InputStream stream = new ParallelDeflaterInputStream(new ByteArrayInputStream(data), Runnable::run, 1)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == current.length) {
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+        final int length = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pendingChunks.forEach(chunk -> chunk.cancel(true));
+        pendingChunks.clear();
+        in.close();
+    }
+
+    /**
+     * Moves on to the next compressed chunk, submitting more chunks for compression first.
+     *
+     * @return False if there are no more chunks.
+     */
+    private boolean nextChunk() throws IOException {
+        while (!endOfInput && pendingChunks.size() < maxChunksInFlight) {
+            submitChunk();
+        }
+        final Future<byte[]> chunk = pendingChunks.poll();
+        if (chunk == null) {
+            return false;
+        }
+        try {
+            current = chunk.get();
+            position = 0;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the next chunk of input and submits it for compression. A chunk shorter than {@link #CHUNK_SIZE} is the last one.
+     */
+    private void submitChunk() throws IOException {
+        final byte[] chunk = in.readNBytes(CHUNK_SIZE);
+        final byte[] chunkDictionary = dictionary;
+        final boolean last = chunk.length < CHUNK_SIZE;
+
+        final FutureTask<byte[]> task = new FutureTask<>(() -> deflateChunk(chunk, chunkDictionary, last));
+        pendingChunks.add(task);
+        executor.execute(task);
+
+        dictionary = Arrays.copyOfRange(chunk, Math.max(0, chunk.length - DICTIONARY_SIZE), chunk.length);
+        endOfInput = last;
+    }
+
+    /**
+     * Compresses a single chunk.
+     *
+     * @param chunk      The chunk of input.
+     * @param dictionary The end of the previous chunk, or null if this is the first chunk.
+     * @param last       True if this is the last chunk, in which case the deflate stream is finished rather than flushed.
+     * @return The compressed chunk.
+     */
+    private static byte[] deflateChunk(byte[] chunk, byte[] dictionary, boolean last) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(chunk);
+            if (last) {
+                deflater.finish();
+            }
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.length / 2 + 64);
+            final byte[] buffer = new byte[16 * 1024];
+            while (true) {
+                final int length = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+                // A sync flush is complete once it no longer fills the buffer.
+                if (last ? deflater.finished() : length < buffer.length) {
+                    return out.toByteArray();
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+}
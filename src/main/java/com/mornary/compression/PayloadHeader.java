@@ -0,0 +1,75 @@
+package com.mornary.compression;
+
+import java.util.Arrays;
+
+/**
+ * The header that marks a processed payload, i.e. the bytes that are encoded as Morse code when they are not simply the input.
+ * <p>
+ * The header is a fixed magic sequence followed by a single mode byte. A payload without the magic sequence is the input as-is.
+ *
+ * @author John Mortimore
+ */
+public final class PayloadHeader {
+
+    /**
+     * The magic sequence at the start of the header. Non-ASCII and containing a line break, like the PNG signature, so that it is
+     * very unlikely to appear at the start of an input by chance.
+     */
+    private static final byte[] MAGIC = {(byte) 0x89, 'M', 'N', 'R', 'Y', '\r', '\n'};
+
+    /**
+     * The length of the header in bytes.
+     */
+    public static final int LENGTH = MAGIC.length + 1;
+
+    /**
+     * Mode for a payload that is the input as-is. Used to escape inputs that happen to start with the magic sequence.
+     */
+    public static final byte STORED = 0;
+
+    /**
+     * Mode for a payload that is the input compressed as a raw deflate stream.
+     */
+    public static final byte DEFLATE = 1;
+
+    /**
+     * Private constructor to prevent instantiation of utility class.
+     */
+    private PayloadHeader() {
+    }
+
+    /**
+     * Creates a header.
+     *
+     * @param mode The payload mode, {@link #STORED} or {@link #DEFLATE}.
+     * @return The header bytes.
+     */
+    public static byte[] create(byte mode) {
+        final byte[] header = Arrays.copyOf(MAGIC, LENGTH);
+        header[MAGIC.length] = mode;
+        return header;
+    }
+
+    /**
+     * Checks if the given data starts with the magic sequence of a header.
+     *
+     * @param data   The data to check.
+     * @param length The length of the data in the array, regardless of the size of the array.
+     * @return True if the data starts with the magic sequence.
+     */
+    public static boolean startsWithMagic(byte[] data, int length) {
+        return length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Checks if the given data could be the start of a header, i.e. it matches the magic sequence for as far as it goes.
+     *
+     * @param data   The data to check.
+     * @param length The length of the data in the array, regardless of the size of the array.
+     * @return True if the data could be the start of a header.
+     */
+    static boolean couldStartWithMagic(byte[] data, int length) {
+        final int compareLength = Math.min(length, MAGIC.length);
+        return Arrays.equals(data, 0, compareLength, MAGIC, 0, compareLength);
+    }
+}
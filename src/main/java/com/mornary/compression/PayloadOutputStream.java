@@ -0,0 +1,121 @@
+package com.mornary.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
+
+/**
+ * An output stream that writes a decoded payload to another output stream as the original input.
+ * <p>
+ * The first bytes written are checked for a {@link PayloadHeader}. If there is one, it is removed and the rest of the payload is
+ * inflated or passed through, according to the header's mode. Otherwise, the payload is passed through unchanged.
+ *
+ * @author John Mortimore
+ */
+public class PayloadOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    /**
+     * The first bytes written, held until it is known whether they are a header.
+     */
+    private final byte[] header = new byte[PayloadHeader.LENGTH];
+    private int headerLength = 0;
+
+    /**
+     * Where the rest of the payload is written. Null until the header has been checked.
+     */
+    private OutputStream target = null;
+
+    /**
+     * Inflates the rest of the payload, if the header's mode is {@link PayloadHeader#DEFLATE}. Otherwise null.
+     */
+    private Inflater inflater = null;
+
+    /**
+     * True once {@link #finish()} has been called.
+     */
+    private boolean finished = false;
+
+    /**
+     * Constructs a new stream.
+     *
+     * @param out The stream to write the original input to.
+     */
+    public PayloadOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (target == null && len > 0) {
+            header[headerLength++] = b[off++];
+            len--;
+            if (!PayloadHeader.couldStartWithMagic(header, headerLength)) {
+                target = out; // Not a header, so pass everything through.
+                out.write(header, 0, headerLength);
+            } else if (headerLength == PayloadHeader.LENGTH) {
+                target = switch (header[PayloadHeader.LENGTH - 1]) {
+                    case PayloadHeader.STORED -> out;
+                    case PayloadHeader.DEFLATE -> new InflaterOutputStream(out, inflater = new Inflater(true));
+                    default -> throw new IOException("Unsupported payload mode: " + header[PayloadHeader.LENGTH - 1]);
+                };
+            }
+        }
+        if (len > 0) {
+            target.write(b, off, len);
+        }
+    }
+
+    /**
+     * Finishes writing the payload without closing the underlying stream. The inflater, if any, is released, since callers that
+     * keep the underlying stream open never close this one. Calling it again has no effect.
+     *
+     * @throws IOException If the payload is compressed and its deflate stream did not end, i.e. it is truncated or corrupt.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (target == null) { // The payload was shorter than a header.
+                target = out;
+                out.write(header, 0, headerLength);
+            } else if (inflater != null) {
+                ((InflaterOutputStream) target).finish();
+                if (!inflater.finished()) {
+                    throw new IOException("The compressed payload is truncated or corrupt");
+                }
+            }
+            out.flush();
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+            out.close();
+        }
+    }
+}
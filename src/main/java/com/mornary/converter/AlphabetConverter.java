@@ -0,0 +1,23 @@
+package com.mornary.converter;
+
+import com.mornary.model.Alphabet;
+import picocli.CommandLine.ITypeConverter;
+
+import java.util.Locale;
+
+/**
+ * Command line argument parser for alphabets, by name in any case (e.g. <code>cyrillic</code>).
+ *
+ * @author John Mortimore
+ */
+public class AlphabetConverter implements ITypeConverter<Alphabet> {
+    @Override
+    public Alphabet convert(String value) {
+
+        try {
+            return Alphabet.valueOf(value.trim().toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Must be latin, punctuation, cyrillic or wabun");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mornary.converter;
+
+import com.mornary.model.ByteRange;
+import picocli.CommandLine.ITypeConverter;
+
+/**
+ * Command line argument parser for byte ranges, in the form <code>start:length</code> (e.g. <code>4096:512</code> for the 512
+ * bytes from offset 4096).
+ *
+ * @author John Mortimore
+ */
+public class ByteRangeConverter implements ITypeConverter<ByteRange> {
+    @Override
+    public ByteRange convert(String value) {
+
+        final String[] parts = value.split(":", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Must be in the form start:length, e.g. 4096:512");
+        }
+
+        try {
+            return new ByteRange(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Must be in the form start:length, e.g. 4096:512");
+        }
+    }
+}
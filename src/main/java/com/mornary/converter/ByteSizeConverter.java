@@ -0,0 +1,47 @@
+package com.mornary.converter;
+
+import picocli.CommandLine.ITypeConverter;
+
+import java.util.Locale;
+
+/**
+ * Command line argument parser for sizes in bytes, e.g. <code>512m</code> or <code>2GB</code>. As with the JVM's
+ * <code>-Xmx</code>, the suffixes k, m, and g are powers of 1024, and a size without a suffix is in bytes.
+ *
+ * @author John Mortimore
+ */
+public class ByteSizeConverter implements ITypeConverter<Long> {
+    @Override
+    public Long convert(String value) {
+
+        String size = value.trim().toLowerCase(Locale.ROOT);
+        if (size.endsWith("ib")) {
+            size = size.substring(0, size.length() - 2);
+        } else if (size.endsWith("b")) {
+            size = size.substring(0, size.length() - 1);
+        }
+
+        final int shift = switch (size.isEmpty() ? ' ' : size.charAt(size.length() - 1)) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            default -> 0;
+        };
+        if (shift > 0) {
+            size = size.substring(0, size.length() - 1);
+        }
+
+        try {
+            long v = Long.parseLong(size.trim());
+            if (v <= 0) {
+                throw new IllegalArgumentException("Must be greater than 0");
+            }
+            if (v > Long.MAX_VALUE >> shift) {
+                throw new IllegalArgumentException("Must be less than 8 EiB");
+            }
+            return v << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Must be a size in bytes, optionally followed by k, m, or g (e.g. 512m)");
+        }
+    }
+}
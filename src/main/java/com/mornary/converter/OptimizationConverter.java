@@ -0,0 +1,23 @@
+package com.mornary.converter;
+
+import com.mornary.model.Optimization;
+import picocli.CommandLine.ITypeConverter;
+
+import java.util.Locale;
+
+/**
+ * Command line argument parser for optimizations, by name in any case (e.g. <code>size</code>).
+ *
+ * @author John Mortimore
+ */
+public class OptimizationConverter implements ITypeConverter<Optimization> {
+    @Override
+    public Optimization convert(String value) {
+
+        try {
+            return Optimization.valueOf(value.trim().toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Must be words or size");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mornary.converter;
+
+import com.mornary.model.Shard;
+import picocli.CommandLine.ITypeConverter;
+
+/**
+ * Command line argument parser for shards, in the form <code>i/n</code> (e.g. <code>2/4</code> for the second of four shards).
+ *
+ * @author John Mortimore
+ */
+public class ShardConverter implements ITypeConverter<Shard> {
+    @Override
+    public Shard convert(String value) {
+
+        final String[] parts = value.split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Must be in the form i/n, e.g. 1/4");
+        }
+
+        try {
+            return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Must be in the form i/n, e.g. 1/4");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mornary.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets. Bucket <code>i</code> counts latencies below
+ * <code>2^i</code> microseconds (and at least <code>2^(i-1)</code> microseconds), the last bucket also counts anything larger.
+ * Recording is cheap enough to be done for every work unit from any number of threads.
+ *
+ * @author John Mortimore
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets. The last bucket starts at 2^30 microseconds (~18 minutes).
+     */
+    static final int NUMBER_OF_BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        final int bucket = Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        this.buckets.incrementAndGet(bucket);
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns the total of all recorded latencies.
+     *
+     * @return The total in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram.
+     *
+     * @return The snapshot.
+     */
+    public LatencySnapshot snapshot() {
+        final long[] counts = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+        }
+        return new LatencySnapshot(this.count.sum(), this.totalNanos.sum(), this.maxNanos.get(), counts);
+    }
+
+    /**
+     * Clears all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mornary.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time copy of a {@link LatencyHistogram}. Exposed over JMX as composite data.
+ *
+ * @author John Mortimore
+ */
+@Getter
+public class LatencySnapshot {
+
+    /**
+     * The number of recorded latencies.
+     */
+    private final long count;
+
+    /**
+     * The sum of all recorded latencies, in microseconds.
+     */
+    private final long totalMicros;
+
+    /**
+     * The largest recorded latency, in microseconds.
+     */
+    private final long maxMicros;
+
+    /**
+     * The number of latencies in each bucket. See {@link #getBucketUpperBoundsMicros()}.
+     */
+    private final long[] bucketCounts;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param count        The number of recorded latencies.
+     * @param totalNanos   The sum of all recorded latencies, in nanoseconds.
+     * @param maxNanos     The largest recorded latency, in nanoseconds.
+     * @param bucketCounts The number of latencies in each bucket.
+     */
+    LatencySnapshot(long count, long totalNanos, long maxNanos, long[] bucketCounts) {
+        this.count = count;
+        this.totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos);
+        this.maxMicros = TimeUnit.NANOSECONDS.toMicros(maxNanos);
+        this.bucketCounts = bucketCounts;
+    }
+
+    /**
+     * Returns the exclusive upper bound of each bucket, in microseconds. The last bucket has no upper bound and is reported as
+     * {@link Long#MAX_VALUE}.
+     *
+     * @return The bucket upper bounds.
+     */
+    public long[] getBucketUpperBoundsMicros() {
+        final long[] bounds = new long[this.bucketCounts.length];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = i == bounds.length - 1 ? Long.MAX_VALUE : 1L << i;
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return The mean in microseconds, or 0 if nothing has been recorded.
+     */
+    public double getMeanMicros() {
+        return this.count == 0 ? 0 : (double) this.totalMicros / this.count;
+    }
+
+    /**
+     * Returns the 50th percentile latency, rounded up to the bucket's upper bound.
+     *
+     * @return The median in microseconds.
+     */
+    public long getP50Micros() {
+        return this.percentile(0.50);
+    }
+
+    /**
+     * Returns the 99th percentile latency, rounded up to the bucket's upper bound.
+     *
+     * @return The 99th percentile in microseconds.
+     */
+    public long getP99Micros() {
+        return this.percentile(0.99);
+    }
+
+    /**
+     * Finds the upper bound of the bucket that contains the given percentile. Capped at {@link #maxMicros}.
+     *
+     * @param percentile The percentile, between 0 and 1.
+     * @return The percentile latency in microseconds.
+     */
+    private long percentile(double percentile) {
+        final long target = (long) Math.ceil(this.count * percentile);
+        long seen = 0;
+        for (int i = 0; i < this.bucketCounts.length; i++) {
+            seen += this.bucketCounts[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(this.maxMicros, i == this.bucketCounts.length - 1 ? Long.MAX_VALUE : 1L << i);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,233 @@
+package com.mornary.metrics;
+
+import lombok.Getter;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and latency histograms for the encode and decode pipelines. The single instance is registered with
+ * the platform MBean server so the metrics can be read with any JMX client (e.g. JConsole or VisualVM) while a job is running.
+ * Starting the MBean server takes about half a second, which would dominate a short CLI run, so the instance is registered on
+ * a background thread; metrics are recorded from the start either way.
+ * <p>
+ * Pipeline stages:
+ * <ul>
+ *     <li><b>read</b> - reading a work unit's worth of input.
+ *     <li><b>queue wait</b> - time a submitted work unit waits before a thread starts encoding it.
+ *     <li><b>encode</b> - converting a work unit into Morse code.
+ *     <li><b>reorder wait</b> - time a completed work unit waits for the preceding work units so it can be written in order.
+ *     <li><b>write</b> - writing a work unit's output.
+ * </ul>
+ *
+ * @author John Mortimore
+ */
+public final class PipelineMetrics implements PipelineMetricsMXBean {
+
+    private static final String OBJECT_NAME = "com.mornary:type=PipelineMetrics";
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    static {
+        final Thread registration = new Thread(PipelineMetrics::register, "mornary-jmx");
+        registration.setDaemon(true); // Never delays exit, even if the MBean server is still starting.
+        registration.start();
+    }
+
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder workUnitsEncoded = new LongAdder();
+    private final LongAdder segmentsEmitted = new LongAdder();
+    private final LongAdder fallbackLetters = new LongAdder();
+    private final LongAdder candidateCacheHits = new LongAdder();
+    private final LongAdder candidateCacheMisses = new LongAdder();
+    private final AtomicInteger peakReorderBufferDepth = new AtomicInteger();
+
+    @Getter
+    private final LatencyHistogram read = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram encode = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram reorderWait = new LatencyHistogram();
+    @Getter
+    private final LatencyHistogram write = new LatencyHistogram();
+
+    /**
+     * Private constructor to enforce the singleton.
+     */
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Registers the instance with the platform MBean server.
+     */
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // Metrics are still collected (e.g. for run reports) even if they cannot be exposed over JMX.
+            System.err.println("Failed to register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the process-wide metrics.
+     *
+     * @return The metrics.
+     */
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records a read from the input.
+     *
+     * @param bytes The number of bytes read.
+     * @param nanos How long the read took.
+     */
+    public void recordRead(long bytes, long nanos) {
+        this.bytesRead.add(bytes);
+        this.read.record(nanos);
+    }
+
+    /**
+     * Records bytes of input that were supplied in memory rather than read from a stream.
+     *
+     * @param bytes The number of bytes.
+     */
+    public void recordInMemoryInput(long bytes) {
+        this.bytesRead.add(bytes);
+    }
+
+    /**
+     * Records the number of completed work units being held in the reorder buffer, keeping track of the peak.
+     *
+     * @param depth The number of completed work units in the buffer.
+     */
+    public void recordReorderBufferDepth(int depth) {
+        this.peakReorderBufferDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Records a work unit that has been encoded.
+     *
+     * @param segments        The number of text segments the work unit was encoded as.
+     * @param fallbackLetters How many of those text segments were single letters picked because no dictionary entry matched.
+     * @param nanos           How long the encoding took.
+     */
+    public void recordEncode(int segments, int fallbackLetters, long nanos) {
+        this.workUnitsEncoded.increment();
+        this.segmentsEmitted.add(segments);
+        this.fallbackLetters.add(fallbackLetters);
+        this.encode.record(nanos);
+    }
+
+    /**
+     * Records the candidate cache lookups made while encoding a work unit.
+     *
+     * @param hits   The number of lookups that found their key.
+     * @param misses The number of lookups that did not find their key, and so searched the trie.
+     */
+    public void recordCandidateCache(long hits, long misses) {
+        this.candidateCacheHits.add(hits);
+        this.candidateCacheMisses.add(misses);
+    }
+
+    /**
+     * Records a write to the output.
+     *
+     * @param bytes The number of bytes written.
+     * @param nanos How long the write took.
+     */
+    public void recordWrite(long bytes, long nanos) {
+        this.bytesWritten.add(bytes);
+        this.write.record(nanos);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return this.bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return this.bytesWritten.sum();
+    }
+
+    @Override
+    public long getWorkUnitsEncoded() {
+        return this.workUnitsEncoded.sum();
+    }
+
+    @Override
+    public long getSegmentsEmitted() {
+        return this.segmentsEmitted.sum();
+    }
+
+    @Override
+    public long getFallbackLetters() {
+        return this.fallbackLetters.sum();
+    }
+
+    @Override
+    public long getCandidateCacheHits() {
+        return this.candidateCacheHits.sum();
+    }
+
+    @Override
+    public long getCandidateCacheMisses() {
+        return this.candidateCacheMisses.sum();
+    }
+
+    @Override
+    public int getPeakReorderBufferDepth() {
+        return this.peakReorderBufferDepth.get();
+    }
+
+    @Override
+    public LatencySnapshot getReadLatency() {
+        return this.read.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getQueueWaitLatency() {
+        return this.queueWait.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getEncodeLatency() {
+        return this.encode.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getReorderWaitLatency() {
+        return this.reorderWait.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getWriteLatency() {
+        return this.write.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        this.bytesRead.reset();
+        this.bytesWritten.reset();
+        this.workUnitsEncoded.reset();
+        this.segmentsEmitted.reset();
+        this.fallbackLetters.reset();
+        this.candidateCacheHits.reset();
+        this.candidateCacheMisses.reset();
+        this.peakReorderBufferDepth.set(0);
+        this.read.reset();
+        this.queueWait.reset();
+        this.encode.reset();
+        this.reorderWait.reset();
+        this.write.reset();
+    }
+}
@@ -0,0 +1,40 @@
+package com.mornary.metrics;
+
+/**
+ * JMX management interface for {@link PipelineMetrics}. Registered as <code>com.mornary:type=PipelineMetrics</code>.
+ *
+ * @author John Mortimore
+ */
+public interface PipelineMetricsMXBean {
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getWorkUnitsEncoded();
+
+    long getSegmentsEmitted();
+
+    long getFallbackLetters();
+
+    long getCandidateCacheHits();
+
+    long getCandidateCacheMisses();
+
+    int getPeakReorderBufferDepth();
+
+    LatencySnapshot getReadLatency();
+
+    LatencySnapshot getQueueWaitLatency();
+
+    LatencySnapshot getEncodeLatency();
+
+    LatencySnapshot getReorderWaitLatency();
+
+    LatencySnapshot getWriteLatency();
+
+    /**
+     * Resets every counter and histogram to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,32 @@
+package com.mornary.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event for a completed work unit waiting in the reorder buffer until all preceding work units have been
+ * written.
+ *
+ * @author John Mortimore
+ */
+@Name("com.mornary.ReorderWait")
+@Label("Reorder Wait")
+@Category({"Mornary", "Encode"})
+@Description("A completed work unit waited for preceding work units before being written")
+public class ReorderWaitEvent extends Event {
+
+    @Label("Index")
+    public int index;
+
+    @Label("Wait")
+    @Timespan
+    public long wait;
+
+    @Label("Buffer Depth")
+    @Description("Completed work units held in the reorder buffer, including this one")
+    public int bufferDepth;
+}
@@ -0,0 +1,37 @@
+package com.mornary.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for a single work unit being encoded into Morse code.
+ *
+ * @author John Mortimore
+ */
+@Name("com.mornary.WorkUnitEncoded")
+@Label("Work Unit Encoded")
+@Category({"Mornary", "Encode"})
+@Description("A work unit was encoded into Morse code")
+public class WorkUnitEncodedEvent extends Event {
+
+    @Label("Index")
+    public int index;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Operation Size")
+    public String operationSize;
+
+    @Label("Segments Emitted")
+    public int segments;
+
+    @Label("Fallback Letters")
+    @Description("Segments that are single letters picked because no dictionary entry matched")
+    public int fallbackLetters;
+}
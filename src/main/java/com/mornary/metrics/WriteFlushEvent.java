@@ -0,0 +1,30 @@
+package com.mornary.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event for a contiguous run of completed work units being written to the output.
+ *
+ * @author John Mortimore
+ */
+@Name("com.mornary.WriteFlush")
+@Label("Write Flush")
+@Category({"Mornary", "Output"})
+@Description("Contiguous completed work units were written to the output")
+public class WriteFlushEvent extends Event {
+
+    @Label("First Index")
+    public int firstIndex;
+
+    @Label("Work Units")
+    public int workUnits;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+}
@@ -0,0 +1,33 @@
+package com.mornary.model;
+
+/**
+ * A set of characters with Morse codes that the encoder may use. Each alphabet is compiled from its own JSON file (see
+ * {@link com.mornary.utility.MorseUtility}). The Latin alphabet is always used; the others are optional, and add Morse codes that
+ * the Latin alphabet does not have, so that more bit patterns can be matched by a single character.
+ * <p>
+ * Decoding is the same whichever alphabets were used to encode, as only the dots and dashes are decoded.
+ *
+ * @author John Mortimore
+ */
+public enum Alphabet {
+
+    /**
+     * The letters A to Z and the digits 0 to 9.
+     */
+    LATIN,
+
+    /**
+     * The ITU punctuation marks, e.g. the full stop (.-.-.-) and the at sign (.--.-.).
+     */
+    PUNCTUATION,
+
+    /**
+     * The Russian Cyrillic letters, e.g. Ч (---.) and Ш (----).
+     */
+    CYRILLIC,
+
+    /**
+     * The Japanese Wabun code, e.g. ヰ (.-..-) and ン (.-.-.).
+     */
+    WABUN
+}
@@ -52,6 +52,15 @@ public final class BitReader {
         return totalBits - bitPos;
     }
 
+    /**
+     * Returns the total number of bits of data in the reader, consumed or not.
+     *
+     * @return The total number of bits of data in the reader.
+     */
+    public int totalBits() {
+        return totalBits;
+    }
+
     /**
      * Returns the value of the bit at the specified offset from the current cursor position.
      * <p>
@@ -72,6 +81,32 @@ public final class BitReader {
         return (data[byteIndex] >> bitOffset) & 1;
     }
 
+    /**
+     * Returns up to 64 bits starting at the specified offset from the current cursor position, packed into a long.
+     * <p>
+     * Like {@link #getBit(int)}, this does not modify the cursor state. The first bit read is the most significant of the returned
+     * bits, so the result can be compared directly with a bit pattern such as {@link TextSegment#getBitPattern()}.
+     *
+     * @param offset The number of bits ahead of the current cursor position to start reading from.
+     * @param count  The number of bits to read, from 0 to 64.
+     * @return The bits, right-aligned in the returned long.
+     * @throws ArrayIndexOutOfBoundsException if the last bit read exceeds the bounds of the underlying byte array.
+     */
+    public long peekBits(int offset, int count) {
+        long bits = 0;
+        int index = bitPos + offset;
+        int remaining = count;
+        while (remaining > 0) {
+            int available = 8 - (index & 7); // Unread bits left in the current byte.
+            int take = Math.min(available, remaining);
+            int value = ((data[index >> 3] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            bits = (bits << take) | value;
+            index += take;
+            remaining -= take;
+        }
+        return bits;
+    }
+
     /**
      * Advances the reader by the given number of bits.
      *
@@ -0,0 +1,23 @@
+package com.mornary.model;
+
+/**
+ * A range of bytes of an input, e.g. a record to be retrieved from a large encoded archive.
+ *
+ * @param start  The offset of the first byte of the range.
+ * @param length The number of bytes in the range.
+ *
+ * @author John Mortimore
+ */
+public record ByteRange(long start, long length) {
+
+    public ByteRange {
+        if (start < 0 || length < 0) {
+            throw new IllegalArgumentException("Range start and length must not be negative");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return start + ":" + length;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mornary.model;
+
+/**
+ * A bounded cache of trie search results, keyed by the next {@link #KEY_BITS} bits of input.
+ * <p>
+ * Each entry holds the ids of the text segments found along the key's path through the trie, sorted by static score (highest
+ * first), so that only the penalty for repetition has to be applied when the entry is used. If the path continues past the key,
+ * the entry also holds the node to continue the search from.
+ * <p>
+ * The cache is direct-mapped: each key has a single slot, and a new entry replaces whatever was in its slot. It is not
+ * thread-safe; each encoding thread should have its own.
+ *
+ * @author John Mortimore
+ */
+public final class CandidateCache {
+
+    /**
+     * The number of bits of input that key an entry. Longer keys cache more of each search, but repeat far less often: with 12
+     * bits, almost every search is a hit, even for random input, and searches that continue past the key resume from the cached
+     * node.
+     */
+    public static final int KEY_BITS = 12;
+
+    private final Entry[] entries;
+    private final int shift;
+
+    /**
+     * The number of lookups that found their key.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that did not find their key.
+     */
+    private long misses;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity The number of entries the cache can hold. Must be a power of two.
+     */
+    public CandidateCache(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, was " + capacity);
+        }
+        this.entries = new Entry[capacity];
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Creates the key for the given input bits.
+     *
+     * @param bits The next {@link #KEY_BITS} bits of input.
+     * @return The key.
+     */
+    public static int key(long bits) {
+        return key(bits, Optimization.WORDS);
+    }
+
+    /**
+     * Creates the key for the given input bits and optimization. Entries are sorted by static score, which depends on the
+     * optimization, so encoders with different optimizations that share a cache have their results cached separately.
+     *
+     * @param bits         The next {@link #KEY_BITS} bits of input.
+     * @param optimization What the encoder optimizes for.
+     * @return The key.
+     */
+    public static int key(long bits, Optimization optimization) {
+        return (int) bits | optimization.ordinal() << KEY_BITS;
+    }
+
+    /**
+     * Retrieves the entry for a key.
+     *
+     * @param key The key. See {@link #key(long)}.
+     * @return The entry, or null if the key is not cached.
+     */
+    public Entry get(int key) {
+        final Entry entry = this.entries[this.slot(key)];
+        if (entry != null && entry.key() == key) {
+            this.hits++;
+            return entry;
+        }
+        this.misses++;
+        return null;
+    }
+
+    /**
+     * Retrieves the number of lookups that found their key.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that did not find their key.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Adds an entry to the cache, replacing any entry in its slot.
+     *
+     * @param entry The entry.
+     */
+    public void put(Entry entry) {
+        this.entries[this.slot(entry.key())] = entry;
+    }
+
+    /**
+     * Maps a key to its slot. Keys are hashed first, so that inputs that only differ in their last bits do not share a slot.
+     *
+     * @param key The key.
+     * @return The index of the slot.
+     */
+    private int slot(int key) {
+        return this.shift == Integer.SIZE ? 0 : (key * 0x9E3779B9) >>> this.shift;
+    }
+
+    /**
+     * The cached result of searching the trie along a key's path.
+     *
+     * @param key        The key.
+     * @param segmentIds The ids of the matching text segments, sorted by static score, highest first.
+     * @param node       The last node searched, if the search may continue past the end of the key. Null if the search ended
+     *                   within the key.
+     * @param depth      The depth of that node, in bits.
+     */
+    public record Entry(int key, int[] segmentIds, RadixMorseTrieNode node, int depth) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.mornary.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * The progress of a file encode, saved so that the encode can be resumed after being interrupted.
+ * <p>
+ * Work units are byte-aligned and encoded independently, so an encode can resume at any work unit boundary: the input is skipped
+ * to the next work unit and the output is truncated to the end of the last work unit written.
+ * <p>
+ * In append mode, the checkpoint is kept after the encode completes, as the state of the output, and the next encode appends
+ * whatever has been added to the input since. Only full work units are recorded then: a partial last work unit is encoded again,
+ * with the data that follows it, by the next encode.
+ *
+ * @param input             The path of the input file.
+ * @param inputSize         The size of the input file in bytes.
+ * @param inputLastModified When the input file was last modified, in milliseconds since the epoch.
+ * @param inputFingerprint  The fingerprint of the input file's first work unit. See {@link #fingerprint(File, int)}.
+ * @param workUnitSize      The number of bytes of input per work unit.
+ * @param compress          True if the input is compressed before it is encoded.
+ * @param shard             The shard of the input being encoded, or null if the entire input is being encoded.
+ * @param workUnitsWritten  The number of work units written to the output file (counted from the start of the shard).
+ * @param outputBytes       The number of bytes written to the output file for those work units.
+ *
+ * @author John Mortimore
+ */
+public record Checkpoint(String input, long inputSize, long inputLastModified, long inputFingerprint, int workUnitSize,
+                         boolean compress, Shard shard, int workUnitsWritten, long outputBytes) {
+
+    /**
+     * Computes the fingerprint of an input file: the CRC-32 of its first work unit, or of the whole file if it is shorter than a
+     * work unit. A file that only grows keeps its fingerprint once it holds a full work unit; before then, no full work units
+     * have been recorded, so nothing is lost by encoding it again from the beginning.
+     *
+     * @param input        The input file.
+     * @param workUnitSize The number of bytes of input per work unit.
+     * @return The fingerprint.
+     */
+    public static long fingerprint(File input, int workUnitSize) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (InputStream is = Files.newInputStream(input.toPath())) {
+            crc.update(is.readNBytes(workUnitSize));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Checks if an encode that saved this checkpoint can be resumed by another encode, i.e. both encodes have the same input
+     * file and settings.
+     *
+     * @param other The checkpoint of the other encode.
+     * @return True if the other encode can resume from this checkpoint.
+     */
+    public boolean isResumableBy(Checkpoint other) {
+        return this.input.equals(other.input)
+            && this.inputSize == other.inputSize
+            && this.inputLastModified == other.inputLastModified
+            && this.inputFingerprint == other.inputFingerprint
+            && this.workUnitSize == other.workUnitSize
+            && this.compress == other.compress
+            && Objects.equals(this.shard, other.shard);
+    }
+
+    /**
+     * Checks if an encode that saved this checkpoint in append mode can be continued by another encode, i.e. both encodes have
+     * the same input file and settings, the input has not shrunk since, and its first work unit is unchanged. An input that
+     * shrank or starts differently has been replaced or rewritten (e.g. a log file rotated with copytruncate, which may have grown
+     * past its old size again by the next encode), so it is encoded again from the beginning.
+     *
+     * @param other The checkpoint of the other encode.
+     * @return True if the other encode can append to the output of this checkpoint.
+     */
+    public boolean isAppendableBy(Checkpoint other) {
+        return this.input.equals(other.input)
+            && this.inputSize <= other.inputSize
+            && this.inputFingerprint == other.inputFingerprint
+            && this.workUnitSize == other.workUnitSize
+            && this.compress == other.compress
+            && Objects.equals(this.shard, other.shard);
+    }
+
+    /**
+     * Returns a copy of this checkpoint with the given progress.
+     *
+     * @param workUnitsWritten The number of work units written to the output file.
+     * @param outputBytes      The number of bytes written to the output file for those work units.
+     * @return The new checkpoint.
+     */
+    public Checkpoint withProgress(int workUnitsWritten, long outputBytes) {
+        return new Checkpoint(input, inputSize, inputLastModified, inputFingerprint, workUnitSize, compress, shard, workUnitsWritten,
+            outputBytes);
+    }
+}
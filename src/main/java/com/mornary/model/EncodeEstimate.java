@@ -0,0 +1,42 @@
+package com.mornary.model;
+
+/**
+ * An estimate of what encoding a file will take, made by encoding a sample of its work units. Written as JSON, or printed, by
+ * the <code>--estimate</code> option.
+ *
+ * @param input               The input file.
+ * @param inputBytes          The number of bytes of input that the encode would read (the shard's bytes, for a sharded encode).
+ * @param workUnits           The number of work units that the encode would process.
+ * @param sampledWorkUnits    How many of those work units were encoded to make the estimate.
+ * @param operationSize       The size of the operation, which the sampled work units were encoded as.
+ * @param threads             The number of encoding threads that the encode time is estimated for.
+ * @param outputBytes         The estimated size of the output.
+ * @param encodeMillis        The estimated wall time of encoding the work units, once the dictionaries are loaded.
+ * @param dictionaryLoadMillis How long it took to load the dictionaries, which the encode would take again in a new process.
+ * @param peakHeapBytes       The estimated peak heap use of the encoder.
+ * @author John Mortimore
+ */
+public record EncodeEstimate(
+    String input,
+    long inputBytes,
+    long workUnits,
+    int sampledWorkUnits,
+    String operationSize,
+    int threads,
+    Range outputBytes,
+    Range encodeMillis,
+    long dictionaryLoadMillis,
+    long peakHeapBytes
+) {
+
+    /**
+     * An estimated quantity, with a 95% confidence interval. When every work unit was sampled, the bounds of quantities that do
+     * not depend on timing equal the estimate.
+     *
+     * @param estimate The estimate.
+     * @param lower    The lower bound of the confidence interval. Never negative.
+     * @param upper    The upper bound of the confidence interval.
+     */
+    public record Range(double estimate, double lower, double upper) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.mornary.model;
+
+import java.util.Set;
+
+/**
+ * Options that control how the encode service processes its inputs.
+ *
+ * @param compress     True if inputs should be compressed before they are encoded.
+ * @param resume       True if file encodes should save checkpoints, and resume from them after being interrupted.
+ * @param shard        The shard of the input that file encodes should encode, or null to encode the entire input.
+ * @param memoryBudget The most heap, in bytes, that the encoder should use, or 0 for no budget. See {@link MemoryPlan}.
+ * @param index        True if file encodes should write a sidecar index of their output. See {@link MorseIndex}.
+ * @param append       True if file encodes should only encode what has been added to the input since the previous encode, and
+ *                     append it to the output. See {@link Checkpoint}.
+ * @param optimization What the encoder optimizes for when it chooses text segments.
+ * @param alphabets    The alphabets whose characters the encoder may use. The Latin alphabet is always used.
+ *
+ * @author John Mortimore
+ */
+public record EncodeOptions(boolean compress, boolean resume, Shard shard, long memoryBudget, boolean index,
+                            boolean append, Optimization optimization, Set<Alphabet> alphabets) {
+
+    /**
+     * The default options: entire inputs are encoded as-is, without checkpoints or an index, into text segments that read as
+     * English words of the Latin alphabet.
+     */
+    public static final EncodeOptions DEFAULT =
+        new EncodeOptions(false, false, null, 0, false, false, Optimization.WORDS, Set.of(Alphabet.LATIN));
+
+    /**
+     * Returns a copy of these options with compression switched on or off.
+     *
+     * @param compress True if inputs should be compressed before they are encoded.
+     * @return The new options.
+     */
+    public EncodeOptions withCompress(boolean compress) {
+        return new EncodeOptions(compress, this.resume, this.shard, this.memoryBudget, this.index, this.append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with checkpoints switched on or off.
+     *
+     * @param resume True if file encodes should save checkpoints, and resume from them after being interrupted.
+     * @return The new options.
+     */
+    public EncodeOptions withResume(boolean resume) {
+        return new EncodeOptions(this.compress, resume, this.shard, this.memoryBudget, this.index, this.append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with the given shard.
+     *
+     * @param shard The shard of the input that file encodes should encode, or null to encode the entire input.
+     * @return The new options.
+     */
+    public EncodeOptions withShard(Shard shard) {
+        return new EncodeOptions(this.compress, this.resume, shard, this.memoryBudget, this.index, this.append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with the given memory budget.
+     *
+     * @param memoryBudget The most heap, in bytes, that the encoder should use, or 0 for no budget.
+     * @return The new options.
+     */
+    public EncodeOptions withMemoryBudget(long memoryBudget) {
+        return new EncodeOptions(this.compress, this.resume, this.shard, memoryBudget, this.index, this.append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with the sidecar index switched on or off.
+     *
+     * @param index True if file encodes should write a sidecar index of their output.
+     * @return The new options.
+     */
+    public EncodeOptions withIndex(boolean index) {
+        return new EncodeOptions(this.compress, this.resume, this.shard, this.memoryBudget, index, this.append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with append mode switched on or off.
+     *
+     * @param append True if file encodes should only encode what has been added to the input since the previous encode.
+     * @return The new options.
+     */
+    public EncodeOptions withAppend(boolean append) {
+        return new EncodeOptions(this.compress, this.resume, this.shard, this.memoryBudget, this.index, append, this.optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with the given optimization.
+     *
+     * @param optimization What the encoder optimizes for when it chooses text segments.
+     * @return The new options.
+     */
+    public EncodeOptions withOptimization(Optimization optimization) {
+        return new EncodeOptions(this.compress, this.resume, this.shard, this.memoryBudget, this.index, this.append, optimization,
+            this.alphabets);
+    }
+
+    /**
+     * Returns a copy of these options with the given alphabets.
+     *
+     * @param alphabets The alphabets whose characters the encoder may use. The Latin alphabet is always used.
+     * @return The new options.
+     */
+    public EncodeOptions withAlphabets(Set<Alphabet> alphabets) {
+        return new EncodeOptions(this.compress, this.resume, this.shard, this.memoryBudget, this.index, this.append,
+            this.optimization, Set.copyOf(alphabets));
+    }
+}
@@ -6,7 +6,7 @@ import java.util.Arrays;
 
 /**
  * A binary tree implementation based on Morse code. Dots branch left and dashes branch right. This tree is designed to hold
- * all single character Morse encodings. It is not more word encodings. See {@link MorseTrie} for word encodings.
+ * all single character Morse encodings. It is not more word encodings. See {@link RadixMorseTrie} for word encodings.
  *
  * @author John Mortimore
  */
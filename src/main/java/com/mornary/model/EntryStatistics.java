@@ -0,0 +1,75 @@
+package com.mornary.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts, for every entry of a {@link SegmentStore}, how often it was a candidate (it matched the input where the encoder was
+ * choosing a text segment) and how often it won (it was the text segment chosen). Used to profile which dictionary entries
+ * actually affect the output; see {@link MorseDictionary#enableEntryStatistics()}.
+ * <p>
+ * Counts are updated atomically, as every encoding thread records into the same statistics.
+ *
+ * @author John Mortimore
+ */
+public final class EntryStatistics {
+
+    private final AtomicLongArray candidates;
+    private final AtomicLongArray wins;
+
+    /**
+     * Constructs empty statistics.
+     *
+     * @param size The number of entries in the segment store.
+     */
+    EntryStatistics(int size) {
+        this.candidates = new AtomicLongArray(size);
+        this.wins = new AtomicLongArray(size);
+    }
+
+    /**
+     * Records that an entry matched the input where a text segment was being chosen.
+     *
+     * @param segmentId The id of the entry.
+     */
+    public void recordCandidate(int segmentId) {
+        this.candidates.incrementAndGet(segmentId);
+    }
+
+    /**
+     * Records that an entry was chosen as a text segment.
+     *
+     * @param segmentId The id of the entry.
+     */
+    public void recordWin(int segmentId) {
+        this.wins.incrementAndGet(segmentId);
+    }
+
+    /**
+     * Retrieves how often an entry was a candidate.
+     *
+     * @param segmentId The id of the entry.
+     * @return The number of times the entry matched the input where a text segment was being chosen.
+     */
+    public long getCandidates(int segmentId) {
+        return this.candidates.get(segmentId);
+    }
+
+    /**
+     * Retrieves how often an entry won.
+     *
+     * @param segmentId The id of the entry.
+     * @return The number of times the entry was chosen as a text segment.
+     */
+    public long getWins(int segmentId) {
+        return this.wins.get(segmentId);
+    }
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return The number of entries in the segment store.
+     */
+    public int size() {
+        return this.wins.length();
+    }
+}
@@ -3,9 +3,20 @@ package com.mornary.model;
 /**
  * Represents a completed work unit and were it fits in the overall sequence of work units.
  *
- * @param index Index of this work unit.
- * @param value The result of the work unit.
+ * @param index          Index of this work unit.
+ * @param value          The result of the work unit.
+ * @param completionTime The {@link System#nanoTime()} at which the work unit was completed.
  * @author John Mortimore
  */
-public record IndexedResult<E>(int index, E value) {
+public record IndexedResult<E>(int index, E value, long completionTime) {
+
+    /**
+     * Constructs a result for a work unit that has just been completed.
+     *
+     * @param index Index of this work unit.
+     * @param value The result of the work unit.
+     */
+    public IndexedResult(int index, E value) {
+        this(index, value, System.nanoTime());
+    }
 }
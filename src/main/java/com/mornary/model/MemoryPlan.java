@@ -0,0 +1,107 @@
+package com.mornary.model;
+
+/**
+ * How the encoder fits into a memory budget: how many of its dictionaries it loads and how many work units it queues.
+ * <p>
+ * Footprints are estimated from measurements of the encoder's peak heap use, which is reached while the dictionaries are being
+ * loaded and the encoder's data structures are being built, plus the heap used by the pipeline while encoding.
+ *
+ * @param dictionaryCount The number of dictionaries to load, counted from the first, highest priority dictionary.
+ * @param queueCapacity   The number of work units that may be queued for the encoding threads.
+ * @param estimatedBytes  The estimated peak heap use of the encoder, in bytes.
+ *
+ * @author John Mortimore
+ */
+public record MemoryPlan(int dictionaryCount, int queueCapacity, long estimatedBytes) {
+
+    /**
+     * The heap used by the encoder regardless of its dictionaries and pipeline: the single character tree, the Morse code
+     * tables, and the precomputed encodings of repeating blocks.
+     */
+    static final long FIXED_BYTES = 4L << 20;
+
+    /**
+     * The peak heap used per dictionary entry while the dictionaries are being loaded, excluding the entry's text.
+     */
+    static final long BYTES_PER_DICTIONARY_ENTRY = 150;
+
+    /**
+     * The heap used per encoding thread, mostly by its candidate cache.
+     */
+    static final long BYTES_PER_THREAD = 1L << 20;
+
+    /**
+     * The heap used per work unit in flight, per byte of work unit. An encoded work unit is about 15 times the size of its input,
+     * and it is built up in a buffer that may be twice its final size.
+     */
+    static final long BYTES_PER_WORK_UNIT_BYTE = 48;
+
+    /**
+     * The most work units that may be queued per encoding thread. Longer queues don't speed up encoding.
+     */
+    static final int MAX_QUEUED_WORK_UNITS_PER_THREAD = 4;
+
+    /**
+     * Estimates the peak heap used to load a dictionary.
+     *
+     * @param entries   The number of entries in the dictionary.
+     * @param textBytes The total size of the dictionary's text, in bytes.
+     * @return The estimated footprint, in bytes.
+     */
+    public static long estimateDictionary(long entries, long textBytes) {
+        return entries * BYTES_PER_DICTIONARY_ENTRY + textBytes;
+    }
+
+    /**
+     * Estimates the peak heap used by an encoder whose dictionaries and queue are already chosen.
+     *
+     * @param dictionaryBytes The estimated footprint of the dictionaries it loads. See {@link #estimateDictionary(long, long)}.
+     * @param workUnitSize    The number of bytes of input per work unit.
+     * @param threadPoolSize  The number of encoding threads.
+     * @param queueCapacity   The number of work units that may be queued for the encoding threads.
+     * @return The estimated peak heap use, in bytes.
+     */
+    public static long estimatePeak(long dictionaryBytes, int workUnitSize, int threadPoolSize, int queueCapacity) {
+        final long bytesPerWorkUnit = BYTES_PER_WORK_UNIT_BYTE * workUnitSize;
+        // Work units that are being encoded, or are completed and waiting to be written, are in flight as well as queued ones.
+        return FIXED_BYTES + dictionaryBytes + threadPoolSize * (BYTES_PER_THREAD + 2 * bytesPerWorkUnit)
+            + queueCapacity * bytesPerWorkUnit;
+    }
+
+    /**
+     * Finds the richest configuration that fits into a memory budget. As many dictionaries are loaded as fit, in order, while
+     * leaving room for a queue of at least one work unit per thread. The queue then gets whatever room is left, up to
+     * {@link #MAX_QUEUED_WORK_UNITS_PER_THREAD} work units per thread.
+     *
+     * @param budget               The memory budget, in bytes.
+     * @param dictionaryFootprints The estimated footprint of each dictionary, in priority order. See
+     *                             {@link #estimateDictionary(long, long)}.
+     * @param workUnitSize         The number of bytes of input per work unit.
+     * @param threadPoolSize       The number of encoding threads.
+     * @return The plan.
+     * @throws IllegalArgumentException If not even the first dictionary fits into the budget.
+     */
+    public static MemoryPlan fit(long budget, long[] dictionaryFootprints, int workUnitSize, int threadPoolSize) {
+        // The smallest queue leaves room for one work unit per thread.
+        int dictionaryCount = 0;
+        long dictionaryBytes = 0;
+        while (dictionaryCount < dictionaryFootprints.length
+            && estimatePeak(dictionaryBytes + dictionaryFootprints[dictionaryCount], workUnitSize, threadPoolSize, threadPoolSize)
+            <= budget) {
+            dictionaryBytes += dictionaryFootprints[dictionaryCount++];
+        }
+
+        if (dictionaryCount == 0) {
+            final long minimum = estimatePeak(dictionaryFootprints[0], workUnitSize, threadPoolSize, threadPoolSize);
+            throw new IllegalArgumentException(String.format("A memory budget of at least %d MB is needed with %d threads",
+                (minimum + (1 << 20) - 1) >> 20, threadPoolSize));
+        }
+
+        final long maxQueueCapacity = (long) threadPoolSize * MAX_QUEUED_WORK_UNITS_PER_THREAD;
+        final long queueBytes = budget - estimatePeak(dictionaryBytes, workUnitSize, threadPoolSize, 0);
+        final int queueCapacity = (int) Math.min(maxQueueCapacity, queueBytes / (BYTES_PER_WORK_UNIT_BYTE * workUnitSize));
+
+        return new MemoryPlan(dictionaryCount, queueCapacity,
+            estimatePeak(dictionaryBytes, workUnitSize, threadPoolSize, queueCapacity));
+    }
+}
@@ -0,0 +1,304 @@
+package com.mornary.model;
+
+import com.mornary.utility.MorseUtility;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dictionaries of the encoder, loaded into a {@link SegmentStore} and a {@link RadixMorseTrie}, along with the single
+ * character tree that letters are picked from when no dictionary entry matches.
+ * <p>
+ * A dictionary is immutable once it has been loaded, so it is safe to share between any number of encoders and threads. Loading
+ * the full set of dictionaries takes a few seconds and about 40MB of heap, so dictionaries are cached process-wide: every call to
+ * {@link #getInstance(List, Set)} with the same dictionary files and alphabets returns the same instance. Each thread also keeps a
+ * {@link CandidateCache} per dictionary, so encoders that share a dictionary share warm caches too.
+ *
+ * @author John Mortimore
+ */
+public final class MorseDictionary {
+
+    /**
+     * Every dictionary that has been loaded, keyed by its dictionary files and alphabets.
+     */
+    private static final Map<Key, MorseDictionary> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * The score multiplier of the characters of the extended alphabets, which are added to the store as single character text
+     * segments. Lower than any dictionary file's, as a lone symbol reads less like English than any word. Their size scores are
+     * scaled by it as well, so that optimizing for size still prefers dictionary words.
+     */
+    static final double EXTENDED_CHARACTER_MULTIPLIER = 0.5;
+
+    /**
+     * The number of entries in each thread's {@link CandidateCache}.
+     */
+    static final int CANDIDATE_CACHE_CAPACITY = 1 << 13;
+
+    /**
+     * The dictionary files that were loaded.
+     */
+    @Getter
+    private final List<WeightedDictionary> dictionaries;
+
+    /**
+     * The alphabets whose characters may be used. Always includes {@link Alphabet#LATIN}.
+     */
+    @Getter
+    private final Set<Alphabet> alphabets;
+
+    /**
+     * The text segments of every dictionary entry. The trie nodes refer to text segments by their ids in this store.
+     */
+    @Getter
+    private final SegmentStore segmentStore;
+
+    @Getter
+    private final RadixMorseTrie morseTrie;
+
+    @Getter
+    private final EncodingBinaryTree singleCharacterTree;
+
+    /**
+     * How long it took to load the dictionaries into the trie.
+     */
+    @Getter
+    private final Duration loadTime;
+
+    /**
+     * Each thread's cache of searches of this dictionary's trie.
+     */
+    private final ThreadLocal<CandidateCache> candidateCaches =
+        ThreadLocal.withInitial(() -> new CandidateCache(CANDIDATE_CACHE_CAPACITY));
+
+    /**
+     * How often each entry was a candidate and a winner, or null if statistics are not being recorded.
+     */
+    private volatile EntryStatistics entryStatistics;
+
+    private MorseDictionary(Key key) throws IOException {
+        this.dictionaries = key.dictionaries();
+        this.alphabets = key.alphabets();
+
+        // Load in the binary tree.
+        final List<Encoding> extendedEncodings = getExtendedEncodings(this.alphabets);
+        final List<Encoding> encodings = new ArrayList<>(List.of(MorseUtility.getEncodings()));
+        encodings.addAll(extendedEncodings);
+        this.singleCharacterTree = new EncodingBinaryTree(encodings.toArray(Encoding[]::new));
+
+        // Load in dictionary files.
+        final long loadStart = System.nanoTime();
+        this.segmentStore = loadSegmentStore(this.dictionaries, this.alphabets, extendedEncodings);
+        this.morseTrie = new RadixMorseTrie(this.segmentStore);
+        this.loadTime = Duration.ofNanos(System.nanoTime() - loadStart);
+    }
+
+    /**
+     * Retrieves the dictionary made up of the given dictionary files, using only the Latin alphabet. See
+     * {@link #getInstance(List, Set)}.
+     *
+     * @param dictionaries The dictionary files, in priority order.
+     * @return The dictionary.
+     */
+    public static MorseDictionary getInstance(List<WeightedDictionary> dictionaries) throws IOException {
+        return getInstance(dictionaries, Set.of(Alphabet.LATIN));
+    }
+
+    /**
+     * Retrieves the dictionary made up of the given dictionary files and alphabets, loading it if it has not been loaded before.
+     * Concurrent calls for the same dictionary files and alphabets wait for a single load.
+     *
+     * @param dictionaries The dictionary files, in priority order.
+     * @param alphabets    The alphabets whose characters may be used. The Latin alphabet is always used.
+     * @return The dictionary.
+     */
+    public static MorseDictionary getInstance(List<WeightedDictionary> dictionaries, Set<Alphabet> alphabets)
+        throws IOException {
+        final Set<Alphabet> allAlphabets = EnumSet.of(Alphabet.LATIN);
+        allAlphabets.addAll(alphabets);
+
+        try {
+            return INSTANCES.computeIfAbsent(new Key(List.copyOf(dictionaries), Collections.unmodifiableSet(allAlphabets)), key -> {
+                try {
+                    return new MorseDictionary(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Retrieves the current thread's cache of searches of this dictionary's trie.
+     *
+     * @return The candidate cache.
+     */
+    public CandidateCache getCandidateCache() {
+        return this.candidateCaches.get();
+    }
+
+    /**
+     * Retrieves the characters of the given extended alphabets whose Morse codes are not already the code of a character of the
+     * Latin alphabet, or of an earlier alphabet. Only these add bit patterns that a single character can match.
+     *
+     * @param alphabets The alphabets.
+     * @return The encodings, in alphabet order.
+     */
+    private static List<Encoding> getExtendedEncodings(Set<Alphabet> alphabets) {
+        final Set<String> codes = new HashSet<>();
+        for (Encoding encoding : MorseUtility.getEncodings()) {
+            codes.add(encoding.getCode());
+        }
+
+        final List<Encoding> encodings = new ArrayList<>();
+        for (Alphabet alphabet : alphabets) {
+            if (alphabet == Alphabet.LATIN) {
+                continue;
+            }
+            for (Encoding encoding : MorseUtility.getEncodings(alphabet)) {
+                if (codes.add(encoding.getCode())) {
+                    encodings.add(encoding);
+                }
+            }
+        }
+        return encodings;
+    }
+
+    /**
+     * Starts recording how often each entry of this dictionary is a candidate and how often it is chosen, by every encoder that
+     * uses this dictionary. Recording slows encoding down a little, so it is meant for profiling which entries affect the output,
+     * not for production use.
+     *
+     * @return The statistics, which are updated as encoders run. Calling this again returns the same statistics.
+     */
+    public synchronized EntryStatistics enableEntryStatistics() {
+        if (this.entryStatistics == null) {
+            this.entryStatistics = new EntryStatistics(this.segmentStore.size());
+        }
+        return this.entryStatistics;
+    }
+
+    /**
+     * Retrieves the statistics of this dictionary's entries.
+     *
+     * @return The statistics, or null if {@link #enableEntryStatistics()} has not been called.
+     */
+    public EntryStatistics getEntryStatistics() {
+        return this.entryStatistics;
+    }
+
+    /**
+     * Loads the given dictionaries into a segment store. Text segments are deduplicated across all the dictionaries by their
+     * English text, keeping the highest multiplier. The characters of the extended alphabets are added as single character text
+     * segments, so that the trie can match them too.
+     *
+     * @param dictionaries      The dictionaries to load.
+     * @param alphabets         The alphabets whose characters may be used.
+     * @param extendedEncodings The characters of the extended alphabets that add new Morse codes.
+     * @return The segment store.
+     */
+    private static SegmentStore loadSegmentStore(List<WeightedDictionary> dictionaries, Set<Alphabet> alphabets,
+                                                 List<Encoding> extendedEncodings) throws IOException {
+        final SegmentStore.Builder storeBuilder = new SegmentStore.Builder();
+
+        for (WeightedDictionary weightedDictionary : dictionaries) {
+            try (
+                InputStream is = MorseDictionary.class.getResourceAsStream(weightedDictionary.filename())
+            ) {
+                if (is == null) {
+                    throw new IOException("Dictionary not found: " +  weightedDictionary.filename());
+                }
+
+                new BufferedReader(new InputStreamReader(is))
+                    .lines()
+                    .forEach(englishText -> {
+                        final String morse = MorseUtility.toMorseCode(englishText, alphabets);
+                        if (isEncodable(morse)) {
+                            storeBuilder.add(englishText, morse, weightedDictionary.scoreMultiplier());
+                        }
+                    });
+            }
+        }
+
+        for (Encoding encoding : extendedEncodings) {
+            storeBuilder.addExtendedCharacter(String.valueOf(encoding.getCharacter()), encoding.getCode(),
+                EXTENDED_CHARACTER_MULTIPLIER);
+        }
+
+        return storeBuilder.build();
+    }
+
+    /**
+     * Estimates the peak heap needed to load a dictionary file, from its number of entries and the size of its text. See
+     * {@link MemoryPlan#estimateDictionary(long, long)}.
+     *
+     * @param dictionary The dictionary file.
+     * @return The estimated footprint, in bytes.
+     */
+    public static long estimateFootprint(WeightedDictionary dictionary) throws IOException {
+        try (InputStream is = MorseDictionary.class.getResourceAsStream(dictionary.filename())) {
+            if (is == null) {
+                throw new IOException("Dictionary not found: " + dictionary.filename());
+            }
+
+            long entries = 0;
+            long bytes = 0;
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                bytes += read;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        entries++;
+                    }
+                }
+            }
+            return MemoryPlan.estimateDictionary(entries, bytes);
+        }
+    }
+
+    /**
+     * Checks if a dictionary entry's Morse code can be used as a text segment. Entries containing characters that have no Morse
+     * encoding in the alphabets being used (e.g. apostrophes, unless punctuation is used), or whose bit pattern is too long to be stored in {@link SegmentStore#getBitPattern(int)}, are
+     * excluded from the trie.
+     *
+     * @param morse The Morse code of the dictionary entry.
+     * @return True if the entry can be used as a text segment.
+     */
+    private static boolean isEncodable(String morse) {
+        int bitLength = 0;
+        for (int i = 0; i < morse.length(); i++) {
+            char c = morse.charAt(i);
+            if (c == '.' || c == '-') {
+                bitLength++;
+            } else if (c != ' ' && c != '/') {
+                return false;
+            }
+        }
+        return bitLength <= Long.SIZE;
+    }
+
+    /**
+     * The key of a loaded dictionary.
+     *
+     * @param dictionaries The dictionary files.
+     * @param alphabets    The alphabets.
+     */
+    private record Key(List<WeightedDictionary> dictionaries, Set<Alphabet> alphabets) {
+    }
+}
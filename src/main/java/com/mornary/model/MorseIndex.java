@@ -0,0 +1,199 @@
+package com.mornary.model;
+
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A sidecar index of a Mornary-encoded file, which maps offsets in the original input to offsets in the Morse code output so that
+ * part of the input can be decoded without decoding the entire output.
+ * <p>
+ * Work units are byte-aligned and encoded independently, so decoding can start at any work unit boundary. The index holds the
+ * output offset of every {@link #interval}-th work unit, i.e. the number of bytes written before it (including the delimiter in
+ * front of it, which the decoder ignores). The payload offset of a work unit follows from its position, as every work unit but
+ * the last is full.
+ * <p>
+ * The index file is binary: a fixed-length header followed by the output offsets, as big-endian longs. Only the header and the
+ * one offset that is needed are read, so a lookup takes the same time however large the output is.
+ *
+ * @author John Mortimore
+ */
+@Getter
+public final class MorseIndex {
+
+    /**
+     * The magic number at the start of an index file, "MNXI".
+     */
+    private static final int MAGIC = 0x4D4E5849;
+    private static final int VERSION = 1;
+
+    /**
+     * The length of the header: magic, version, work unit size, interval, payload offset, and number of entries as ints, then the
+     * input size and output size as longs.
+     */
+    static final int HEADER_LENGTH = 6 * Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * The number of work units between index entries, unless otherwise specified. With 1KB work units, decoding starts at most
+     * 16KB of input before the requested range, and the index is about 1/2000th of the size of the input.
+     */
+    public static final int DEFAULT_INTERVAL = 16;
+
+    /**
+     * The index file.
+     */
+    private final File file;
+
+    /**
+     * The number of bytes of payload per work unit.
+     */
+    private final int workUnitSize;
+
+    /**
+     * The number of work units between index entries.
+     */
+    private final int interval;
+
+    /**
+     * The number of bytes in front of the input in the payload, i.e. the length of the header that escapes an input which happens
+     * to start like a payload header (see {@link com.mornary.compression.PayloadHeader}), or 0.
+     */
+    private final int payloadOffset;
+
+    /**
+     * The number of entries in the index.
+     */
+    private final int entries;
+
+    /**
+     * The size of the original input, in bytes.
+     */
+    private final long inputSize;
+
+    /**
+     * The size of the encoded output, in bytes. Used to detect an index that does not belong to the output.
+     */
+    private final long outputSize;
+
+    private MorseIndex(File file, int workUnitSize, int interval, int payloadOffset, int entries, long inputSize,
+                       long outputSize) {
+        this.file = file;
+        this.workUnitSize = workUnitSize;
+        this.interval = interval;
+        this.payloadOffset = payloadOffset;
+        this.entries = entries;
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+    }
+
+    /**
+     * Retrieves the index file of an encoded output file.
+     *
+     * @param output The encoded output file.
+     * @return The index file.
+     */
+    public static File getIndexFile(File output) {
+        return new File(output.getPath() + ".index");
+    }
+
+    /**
+     * Writes an index file. If the file exists, it will be overwritten.
+     *
+     * @param file          The index file.
+     * @param workUnitSize  The number of bytes of payload per work unit.
+     * @param interval      The number of work units between index entries.
+     * @param payloadOffset The number of bytes in front of the input in the payload.
+     * @param inputSize     The size of the original input, in bytes.
+     * @param outputSize    The size of the encoded output, in bytes.
+     * @param outputOffsets The output offset of every interval-th work unit, starting with the first.
+     * @param entries       The number of output offsets in the array, regardless of the size of the array.
+     */
+    public static void write(File file, int workUnitSize, int interval, int payloadOffset, long inputSize, long outputSize,
+                             long[] outputOffsets, int entries) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(workUnitSize);
+            out.writeInt(interval);
+            out.writeInt(payloadOffset);
+            out.writeInt(entries);
+            out.writeLong(inputSize);
+            out.writeLong(outputSize);
+            for (int i = 0; i < entries; i++) {
+                out.writeLong(outputOffsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Opens an index file, reading only its header.
+     *
+     * @param file The index file.
+     * @return The index.
+     * @throws IOException If the file cannot be read, or is not a valid index file.
+     */
+    public static MorseIndex open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < HEADER_LENGTH || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a Mornary index file: " + file);
+            }
+            final MorseIndex index = new MorseIndex(file, in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong(),
+                in.readLong());
+            if (in.length() != HEADER_LENGTH + (long) index.entries * Long.BYTES) {
+                throw new IOException("Truncated Mornary index file: " + file);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Reads every output offset in the index.
+     *
+     * @return The output offset of every interval-th work unit, starting with the first.
+     */
+    public long[] readOutputOffsets() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+            in.skipNBytes(HEADER_LENGTH);
+            final long[] outputOffsets = new long[this.entries];
+            for (int i = 0; i < this.entries; i++) {
+                outputOffsets[i] = in.readLong();
+            }
+            return outputOffsets;
+        }
+    }
+
+    /**
+     * Finds where to start decoding in order to reach an offset of the original input.
+     *
+     * @param inputOffset The offset in the original input. Must be less than the input size.
+     * @return The output offset of the closest indexed work unit at or before the input offset, and the number of decoded bytes
+     *         between that work unit and the input offset.
+     */
+    public Position locate(long inputOffset) throws IOException {
+        final long payloadPosition = inputOffset + this.payloadOffset;
+        final long bytesPerEntry = (long) this.interval * this.workUnitSize;
+        final int entry = (int) Math.min(payloadPosition / bytesPerEntry, this.entries - 1);
+
+        try (RandomAccessFile in = new RandomAccessFile(this.file, "r")) {
+            in.seek(HEADER_LENGTH + (long) entry * Long.BYTES);
+            return new Position(in.readLong(), payloadPosition - entry * bytesPerEntry);
+        }
+    }
+
+    /**
+     * A place to start decoding from.
+     *
+     * @param outputOffset The offset in the encoded output to start decoding from.
+     * @param skipBytes    The number of decoded bytes to skip to reach the requested input offset.
+     */
+    public record Position(long outputOffset, long skipBytes) {
+    }
+}
@@ -1,16 +1,14 @@
 package com.mornary.model;
 
 public enum OperationSize {
-    SMALL(1, 100),
-    MEDIUM(5, 50),
-    LARGE(20, 25);
+    SMALL(1),
+    MEDIUM(5),
+    LARGE(20);
 
     public final long maxNumberOfWorkUnits;
-    public final int matchTarget;
 
-    OperationSize(int maxNumberOfWorkUnits, int matchTarget) {
+    OperationSize(int maxNumberOfWorkUnits) {
         this.maxNumberOfWorkUnits = maxNumberOfWorkUnits;
-        this.matchTarget = matchTarget;
     }
 
     public static OperationSize getOperationSize(long numberOfWorkUnits) {
@@ -0,0 +1,22 @@
+package com.mornary.model;
+
+/**
+ * What the encoder optimizes for when it chooses between the text segments that match the input.
+ *
+ * @author John Mortimore
+ */
+public enum Optimization {
+
+    /**
+     * Prefer long text segments from the most common dictionaries, so that the Morse code reads as plausible English. See
+     * {@link SegmentStore#getScore(int)}.
+     */
+    WORDS,
+
+    /**
+     * Prefer the text segments that encode the most payload bits per character of output, so that the output is as small as
+     * possible. Dictionary entries are still preferred over single letters, and over the lone characters of the extended
+     * alphabets unless the entry is one of the few shortest (e.g. "e" or "tt"). See {@link SegmentStore#getSizeScore(int)}.
+     */
+    SIZE
+}
@@ -0,0 +1,130 @@
+package com.mornary.model;
+
+import lombok.Getter;
+
+/**
+ * A path-compressed (radix) trie of the text segments in a {@link SegmentStore}, keyed by their Morse code bits (0s for dots,
+ * 1s for dashes).
+ * <p>
+ * Below the first few levels of a large dictionary, most trie nodes have a single child and no text segments. This trie collapses
+ * each such chain into a single edge labelled with the chain's packed bit string, so a search can skip the whole chain with one
+ * comparison against {@link BitReader#peekBits(int, int)} rather than stepping through it a bit at a time.
+ * <p>
+ * When built from a {@link SegmentStore}, every node also records the highest static score of the text segments at or below it
+ * (see {@link RadixMorseTrieNode#getMaxScore(Optimization)}), so that a search can stop as soon as nothing deeper can win.
+ *
+ * @author John Mortimore
+ */
+@Getter
+public class RadixMorseTrie {
+
+    /**
+     * The root node of the trie.
+     */
+    private final RadixMorseTrieNode root;
+
+    /**
+     * The number of nodes in the trie.
+     */
+    private int numberOfNodes = 0;
+
+    /**
+     * Constructs a radix trie of every text segment in the store. The trie is built directly from the store's id ranges, without
+     * building the (much larger) uncompressed trie first.
+     *
+     * @param store The text segments.
+     */
+    public RadixMorseTrie(SegmentStore store) {
+        this.root = build(store, 0, store.size(), 0);
+    }
+
+    /**
+     * Creates the radix node for a range of text segments, along with the radix nodes for all of their descendants.
+     *
+     * @param store The text segments.
+     * @param from  The id of the first text segment in the range, inclusive.
+     * @param to    The id of the last text segment in the range, exclusive.
+     * @param depth The depth of the node. Every text segment in the range shares its first <code>depth</code> bits, and those
+     *              that are exactly <code>depth</code> bits long end at the node.
+     * @return The radix node.
+     */
+    private RadixMorseTrieNode build(SegmentStore store, int from, int to, int depth) {
+        int dotFrom = from;
+        while (dotFrom < to && store.getBitLength(dotFrom) == depth) {
+            dotFrom++;
+        }
+        int dashFrom = dotFrom;
+        while (dashFrom < to && store.getLeftAlignedBitPattern(dashFrom) << depth >= 0) { // The next bit is a dot.
+            dashFrom++;
+        }
+
+        RadixMorseTrieNode radixNode = new RadixMorseTrieNode(from, dotFrom - from);
+        numberOfNodes++;
+
+        if (dotFrom < dashFrom) {
+            radixNode.dot = buildEdge(store, dotFrom, dashFrom, depth, radixNode);
+        }
+        if (dashFrom < to) {
+            radixNode.dash = buildEdge(store, dashFrom, to, depth, radixNode);
+        }
+
+        // The highest static scores at or below the node, which bound how much better a search can do by descending to it.
+        double maxScore = Double.NEGATIVE_INFINITY;
+        double maxSizeScore = Double.NEGATIVE_INFINITY;
+        for (int id = from; id < dotFrom; id++) {
+            maxScore = Math.max(maxScore, store.getScore(id));
+            maxSizeScore = Math.max(maxSizeScore, store.getSizeScore(id));
+        }
+        if (radixNode.dot != null) {
+            maxScore = Math.max(maxScore, radixNode.dot.maxScore);
+            maxSizeScore = Math.max(maxSizeScore, radixNode.dot.maxSizeScore);
+        }
+        if (radixNode.dash != null) {
+            maxScore = Math.max(maxScore, radixNode.dash.maxScore);
+            maxSizeScore = Math.max(maxSizeScore, radixNode.dash.maxSizeScore);
+        }
+        radixNode.maxScore = roundUp(maxScore);
+        radixNode.maxSizeScore = roundUp(maxSizeScore);
+        return radixNode;
+    }
+
+    /**
+     * Rounds a score to the nearest float that is not lower than it.
+     *
+     * @param score The score.
+     * @return The rounded score.
+     */
+    private static float roundUp(double score) {
+        final float rounded = (float) score;
+        return rounded < score ? Math.nextUp(rounded) : rounded;
+    }
+
+    /**
+     * Creates the edge for a range of text segments that share their first <code>depth + 1</code> bits. The edge ends where the
+     * first text segment in the range ends or where the range branches, whichever comes first.
+     *
+     * @param store  The text segments.
+     * @param from   The id of the first text segment in the range, inclusive.
+     * @param to     The id of the last text segment in the range, exclusive.
+     * @param depth  The depth of the node the edge starts from.
+     * @param parent The radix node the edge starts from. Its label and length for the edge are set by this method.
+     * @return The radix node at the end of the edge.
+     */
+    private RadixMorseTrieNode buildEdge(SegmentStore store, int from, int to, int depth, RadixMorseTrieNode parent) {
+        final long first = store.getLeftAlignedBitPattern(from);
+        final long last = store.getLeftAlignedBitPattern(to - 1);
+        final int commonPrefix = Long.numberOfLeadingZeros(first ^ last);
+        final int childDepth = Math.min(commonPrefix, store.getBitLength(from));
+
+        final int length = childDepth - depth;
+        final long label = (first << depth) >>> (Long.SIZE - length);
+        if ((first << depth) >= 0) {
+            parent.dotLabel = label;
+            parent.dotLength = length;
+        } else {
+            parent.dashLabel = label;
+            parent.dashLength = length;
+        }
+        return build(store, from, to, childDepth);
+    }
+}
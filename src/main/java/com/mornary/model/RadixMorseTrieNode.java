@@ -0,0 +1,135 @@
+package com.mornary.model;
+
+/**
+ * Node object for {@link RadixMorseTrie}.
+ * <p>
+ * Each node has up to two outgoing edges, one starting with a dot and one starting with a dash. An edge is labelled with the
+ * packed bit string (0s for dots, 1s for dashes, most significant bit first) of the chain of uncompressed trie nodes it
+ * replaces, which is at most 64 bits long.
+ *
+ * @author John Mortimore
+ */
+public class RadixMorseTrieNode {
+
+    /**
+     * The label of the edge whose first bit is a dot (0).
+     */
+    long dotLabel;
+
+    /**
+     * The number of bits in {@link #dotLabel}.
+     */
+    int dotLength;
+
+    /**
+     * The node at the end of the dot edge, or null if there is no dot edge.
+     */
+    RadixMorseTrieNode dot;
+
+    /**
+     * The label of the edge whose first bit is a dash (1).
+     */
+    long dashLabel;
+
+    /**
+     * The number of bits in {@link #dashLabel}.
+     */
+    int dashLength;
+
+    /**
+     * The node at the end of the dash edge, or null if there is no dash edge.
+     */
+    RadixMorseTrieNode dash;
+
+    /**
+     * The highest {@link SegmentStore#getScore(int)} of any text segment at or below this node. Rounded up to a float, so that
+     * it is never lower than the true maximum.
+     */
+    float maxScore;
+
+    /**
+     * The highest {@link SegmentStore#getSizeScore(int)} of any text segment at or below this node. Rounded up like
+     * {@link #maxScore}.
+     */
+    float maxSizeScore;
+
+    /**
+     * The id of the first text segment in the {@link SegmentStore} whose bit pattern ends at this node.
+     */
+    private final int firstSegmentId;
+
+    /**
+     * The number of text segments whose bit pattern ends at this node. Their ids are consecutive.
+     */
+    private final int segmentCount;
+
+    /**
+     * Constructs a new node.
+     *
+     * @param firstSegmentId The id of the first text segment whose bit pattern ends at this node.
+     * @param segmentCount   The number of text segments whose bit patterns end at this node.
+     */
+    RadixMorseTrieNode(int firstSegmentId, int segmentCount) {
+        this.firstSegmentId = firstSegmentId;
+        this.segmentCount = segmentCount;
+    }
+
+    /**
+     * Retrieves the id of the first text segment whose bit pattern ends at this node.
+     *
+     * @return The id of the first text segment. Meaningless if the node has no text segments.
+     */
+    public int getFirstSegmentId() {
+        return firstSegmentId;
+    }
+
+    /**
+     * Retrieves the number of text segments whose bit patterns end at this node.
+     *
+     * @return The number of text segments.
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Retrieves the node at the end of the edge that starts with the given bit.
+     *
+     * @param bit The first bit of the edge, 0 for a dot and 1 for a dash.
+     * @return The child node, or null if there is no such edge.
+     */
+    public RadixMorseTrieNode getChild(int bit) {
+        return bit == 0 ? dot : dash;
+    }
+
+    /**
+     * Retrieves the label of the edge that starts with the given bit.
+     *
+     * @param bit The first bit of the edge, 0 for a dot and 1 for a dash.
+     * @return The packed bits of the edge label, including the first bit.
+     */
+    public long getLabel(int bit) {
+        return bit == 0 ? dotLabel : dashLabel;
+    }
+
+    /**
+     * Retrieves the length of the edge that starts with the given bit.
+     *
+     * @param bit The first bit of the edge, 0 for a dot and 1 for a dash.
+     * @return The number of bits in the edge label.
+     */
+    public int getLabelLength(int bit) {
+        return bit == 0 ? dotLength : dashLength;
+    }
+
+    /**
+     * Retrieves the highest static score of any text segment at or below this node, i.e. the best score that a search can still
+     * find by descending to this node.
+     *
+     * @param optimization The optimization that the static score is for.
+     * @return The highest static score.
+     */
+    public double getMaxScore(Optimization optimization) {
+        return optimization == Optimization.SIZE ? maxSizeScore : maxScore;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mornary.model;
+
+import java.util.Map;
+
+/**
+ * A machine-readable summary of a single Mornary run. Written as JSON by the <code>--report</code> option.
+ *
+ * @param operation              The operation that was run, e.g. "encode-file".
+ * @param input                  The input file, directory, or glob. Null for text inputs.
+ * @param output                 The output file or directory. Null for console output.
+ * @param startTime              When the run started, as an ISO-8601 instant.
+ * @param elapsedMillis          The wall time of the run, including loading the dictionaries.
+ * @param inputBytes             The number of bytes of input that were read.
+ * @param outputBytes            The number of bytes of output that were written.
+ * @param workUnits              The number of work units processed.
+ * @param throughputBytesPerSecond Input bytes processed per second of wall time.
+ * @param dictionaryLoadMillis   How long it took to load the dictionaries. Zero when decoding.
+ * @param peakReorderBufferDepth The most completed work units that were held waiting for earlier work units to be written.
+ * @param segmentsEmitted        The number of text segments (words, n-grams, or letters) that were output.
+ * @param fallbackLetters        How many of those text segments were single letters picked because no dictionary entry matched.
+ * @param fallbackRate           The share of text segments that were fallback letters, between 0 and 1.
+ * @param candidateCacheHits     The number of trie searches answered by the candidate cache.
+ * @param candidateCacheMisses   The number of trie searches that missed the candidate cache.
+ * @param candidateCacheHitRate  The share of candidate cache lookups that were hits, between 0 and 1.
+ * @param stages                 Timings of each pipeline stage, keyed by stage name.
+ * @author John Mortimore
+ */
+public record RunReport(
+    String operation,
+    String input,
+    String output,
+    String startTime,
+    long elapsedMillis,
+    long inputBytes,
+    long outputBytes,
+    long workUnits,
+    double throughputBytesPerSecond,
+    long dictionaryLoadMillis,
+    int peakReorderBufferDepth,
+    long segmentsEmitted,
+    long fallbackLetters,
+    double fallbackRate,
+    long candidateCacheHits,
+    long candidateCacheMisses,
+    double candidateCacheHitRate,
+    Map<String, StageTiming> stages
+) {
+
+    /**
+     * Timings of a single pipeline stage. Stage timings are summed across threads, so the total of a parallel stage may exceed
+     * the elapsed time of the run.
+     *
+     * @param count       The number of times the stage ran.
+     * @param totalMillis The total time spent in the stage.
+     * @param meanMicros  The mean time per run of the stage.
+     * @param p50Micros   The median time, rounded up to a power of two.
+     * @param p99Micros   The 99th percentile time, rounded up to a power of two.
+     * @param maxMicros   The longest time.
+     */
+    public record StageTiming(long count, long totalMillis, double meanMicros, long p50Micros, long p99Micros, long maxMicros) {
+    }
+}
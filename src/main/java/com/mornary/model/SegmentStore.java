@@ -0,0 +1,330 @@
+package com.mornary.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A compact, read-only store of dictionary text segments.
+ * <p>
+ * Rather than holding a {@link TextSegment} (and its three strings) per dictionary entry, the English text of every entry is kept
+ * as bytes in one shared pool with int offsets, and the rest of each entry is kept in parallel primitive arrays indexed by the
+ * entry's id. The Morse code of an entry is not stored at all, it is generated from the English text when needed.
+ * <p>
+ * Ids are in trie order: entries are ordered by their dots and dashes, with a shorter entry before any longer entry it is a prefix
+ * of. So entries with the same bit pattern always have consecutive ids, which allows a trie node to refer to all of its entries
+ * with a single id range, and the entries below any trie node have consecutive ids too, which allows a trie to be built directly
+ * from the store. See {@link RadixMorseTrie#RadixMorseTrie(SegmentStore)}.
+ *
+ * @author John Mortimore
+ */
+public final class SegmentStore {
+
+    private static final int BIT_LENGTH_SHIFT = 0;
+    private static final int LETTERS_SHIFT = 8;
+    private static final int WORDS_SHIFT = 16;
+    private static final int FIELD_MASK = 0xFF;
+
+    /**
+     * Set in an entry's metadata if it is a single character of an extended alphabet, rather than a dictionary entry.
+     */
+    private static final int EXTENDED_CHARACTER_FLAG = 1 << 24;
+
+    /**
+     * The English text of every entry, as UTF-8 bytes. Only the characters of the extended alphabets take more than one byte.
+     */
+    private final byte[] text;
+
+    /**
+     * The offset of each entry's English text in {@link #text}. Has one extra element, so that the text of entry <code>i</code>
+     * ends at <code>textOffsets[i + 1]</code>.
+     */
+    private final int[] textOffsets;
+
+    /**
+     * The bit pattern of each entry. 0s for dots, 1s for dashes.
+     */
+    private final long[] bitPatterns;
+
+    /**
+     * The bit length, number of letters, and number of words of each entry, packed 8 bits apiece into an int, along with
+     * {@link #EXTENDED_CHARACTER_FLAG}.
+     */
+    private final int[] metadata;
+
+    /**
+     * The score multiplier of each entry's dictionary.
+     */
+    private final float[] scoreMultipliers;
+
+    /**
+     * The static score of each entry, i.e. its score before any penalty for repetition is applied.
+     */
+    private final double[] scores;
+
+    private SegmentStore(byte[] text, int[] textOffsets, long[] bitPatterns, int[] metadata, float[] scoreMultipliers,
+                         double[] scores) {
+        this.text = text;
+        this.textOffsets = textOffsets;
+        this.bitPatterns = bitPatterns;
+        this.metadata = metadata;
+        this.scoreMultipliers = scoreMultipliers;
+        this.scores = scores;
+    }
+
+    /**
+     * Retrieves the number of entries in the store.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return bitPatterns.length;
+    }
+
+    /**
+     * Retrieves the English text of an entry.
+     *
+     * @param id The id of the entry.
+     * @return The text in English.
+     */
+    public String getEnglish(int id) {
+        return new String(text, textOffsets[id], textOffsets[id + 1] - textOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the bit pattern of an entry.
+     *
+     * @param id The id of the entry.
+     * @return The bit pattern. 0s for dots, 1s for dashes.
+     */
+    public long getBitPattern(int id) {
+        return bitPatterns[id];
+    }
+
+    /**
+     * Retrieves the bit pattern of an entry, shifted so that its first bit is the most significant bit of the long.
+     *
+     * @param id The id of the entry.
+     * @return The left-aligned bit pattern.
+     */
+    public long getLeftAlignedBitPattern(int id) {
+        return leftAlign(bitPatterns[id], getBitLength(id));
+    }
+
+    /**
+     * Shifts a bit pattern so that its first bit is the most significant bit of the long. Comparing left-aligned bit patterns as
+     * unsigned longs compares them in trie order.
+     *
+     * @param bitPattern The bit pattern.
+     * @param bitLength  The length of the bit pattern.
+     * @return The left-aligned bit pattern.
+     */
+    private static long leftAlign(long bitPattern, int bitLength) {
+        return bitLength == 0 ? 0 : bitPattern << (Long.SIZE - bitLength);
+    }
+
+    /**
+     * Retrieves the length of the bit pattern of an entry.
+     *
+     * @param id The id of the entry.
+     * @return The bit length.
+     */
+    public int getBitLength(int id) {
+        return (metadata[id] >>> BIT_LENGTH_SHIFT) & FIELD_MASK;
+    }
+
+    /**
+     * Retrieves the number of letters in the English text of an entry. Spaces are not counted.
+     *
+     * @param id The id of the entry.
+     * @return The number of letters.
+     */
+    public int getNumberOfLetters(int id) {
+        return (metadata[id] >>> LETTERS_SHIFT) & FIELD_MASK;
+    }
+
+    /**
+     * Retrieves the number of words in the English text of an entry.
+     *
+     * @param id The id of the entry.
+     * @return The number of words.
+     */
+    public int getNumberOfWords(int id) {
+        return (metadata[id] >>> WORDS_SHIFT) & FIELD_MASK;
+    }
+
+    /**
+     * Retrieves the score multiplier of the dictionary an entry came from.
+     *
+     * @param id The id of the entry.
+     * @return The score multiplier.
+     */
+    public double getScoreMultiplier(int id) {
+        return scoreMultipliers[id];
+    }
+
+    /**
+     * Retrieves the static score of an entry, i.e. its score before any penalty for repetition is applied. Longer entries, and
+     * entries from more heavily weighted dictionaries, score higher. Entries without vowels (most likely acronyms) are penalized.
+     *
+     * @param id The id of the entry.
+     * @return The static score.
+     */
+    public double getScore(int id) {
+        return scores[id];
+    }
+
+    /**
+     * Retrieves the size score of an entry, i.e. the number of payload bits it encodes per character of output. Each of its dots
+     * and dashes encodes one bit, but each letter adds a letter break (a space), each word adds a word break (" / "), and the
+     * entry itself is separated from the next by a word break. So an entry of b bits, l letters, and w words takes b + l + 2w
+     * characters of output, once the break after it is included.
+     * <p>
+     * The single characters of the extended alphabets (see {@link Builder#addExtendedCharacter(String, String, double)}) are
+     * scaled by their score multiplier. Their codes are long, so a lone symbol would otherwise encode more bits per character
+     * than most short words, and the output would be mostly symbols rather than dictionary words.
+     *
+     * @param id The id of the entry.
+     * @return The size score, between 0 and 1.
+     */
+    public double getSizeScore(int id) {
+        final int bitLength = getBitLength(id);
+        final double sizeScore = (double) bitLength / (bitLength + getNumberOfLetters(id) + 2 * getNumberOfWords(id));
+        return (metadata[id] & EXTENDED_CHARACTER_FLAG) != 0 ? sizeScore * scoreMultipliers[id] : sizeScore;
+    }
+
+    /**
+     * Builds a {@link SegmentStore}. Entries are deduplicated case-insensitively (Morse code is case-insensitive), keeping the
+     * highest score multiplier.
+     */
+    public static final class Builder {
+
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private int size = 0;
+        private int[] textOffsets = new int[1024];
+        private long[] bitPatterns = new long[1024];
+        private int[] metadata = new int[1024];
+        private double[] scoreMultipliers = new double[1024];
+        private boolean[] acronyms = new boolean[1024];
+
+        /**
+         * Adds an entry to the store. If an entry with the same text (ignoring case) has already been added, only its score
+         * multiplier is updated, and only if the new multiplier is higher.
+         *
+         * @param english         The text in English.
+         * @param morse           The text in Morse code. Must contain no more than 64 dots and dashes.
+         * @param scoreMultiplier Score multiplier for this entry.
+         */
+        public void add(String english, String morse, double scoreMultiplier) {
+            this.add(english, morse, scoreMultiplier, 0);
+        }
+
+        /**
+         * Adds a single character of an extended alphabet to the store, as an entry of its own. Its size score is scaled by its
+         * score multiplier (see {@link SegmentStore#getSizeScore(int)}). If an entry with the same text (ignoring case) has
+         * already been added, it is treated as in {@link #add(String, String, double)}.
+         *
+         * @param character       The character.
+         * @param morse           The Morse code of the character.
+         * @param scoreMultiplier Score multiplier for this entry.
+         */
+        public void addExtendedCharacter(String character, String morse, double scoreMultiplier) {
+            this.add(character, morse, scoreMultiplier, EXTENDED_CHARACTER_FLAG);
+        }
+
+        private void add(String english, String morse, double scoreMultiplier, int flags) {
+            final String key = english.toLowerCase(Locale.US);
+            final Integer existing = ids.get(key);
+            if (existing != null) {
+                scoreMultipliers[existing] = Math.max(scoreMultipliers[existing], scoreMultiplier);
+                return;
+            }
+
+            if (size + 1 >= textOffsets.length) {
+                final int capacity = textOffsets.length * 2;
+                textOffsets = Arrays.copyOf(textOffsets, capacity);
+                bitPatterns = Arrays.copyOf(bitPatterns, capacity);
+                metadata = Arrays.copyOf(metadata, capacity);
+                scoreMultipliers = Arrays.copyOf(scoreMultipliers, capacity);
+                acronyms = Arrays.copyOf(acronyms, capacity);
+            }
+
+            long bits = 0;
+            int bitLength = 0;
+            for (int i = 0; i < morse.length(); i++) {
+                final char c = morse.charAt(i);
+                if (c == '.' || c == '-') {
+                    bits = (bits << 1) | (c == '-' ? 1 : 0);
+                    bitLength++;
+                }
+            }
+
+            int letters = 0;
+            int words = 1;
+            for (int i = 0; i < english.length(); i++) {
+                if (english.charAt(i) == ' ') {
+                    words++;
+                } else {
+                    letters++;
+                }
+            }
+
+            final int id = size++;
+            ids.put(key, id);
+            text.writeBytes(english.getBytes(StandardCharsets.UTF_8));
+            textOffsets[id + 1] = text.size();
+            bitPatterns[id] = bits;
+            metadata[id] = bitLength << BIT_LENGTH_SHIFT | letters << LETTERS_SHIFT | words << WORDS_SHIFT | flags;
+            scoreMultipliers[id] = scoreMultiplier;
+            acronyms[id] = !key.matches(".*[aeiou].*");
+        }
+
+        /**
+         * Builds the store. Entries are reordered into trie order. The builder must not be used afterwards.
+         *
+         * @return The store.
+         */
+        public SegmentStore build() {
+            ids.clear(); // Free the deduplication keys before allocating the store.
+
+            final int[] order = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.<Integer, Long>comparing(i -> leftAlign(bitPatterns[i], metadata[i] & FIELD_MASK), Long::compareUnsigned)
+                    .thenComparingInt(i -> metadata[i] & FIELD_MASK))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+            final byte[] oldText = text.toByteArray();
+            final byte[] newText = new byte[oldText.length];
+            final int[] newTextOffsets = new int[size + 1];
+            final long[] newBitPatterns = new long[size];
+            final int[] newMetadata = new int[size];
+            final float[] newScoreMultipliers = new float[size];
+            final double[] newScores = new double[size];
+
+            int offset = 0;
+            for (int id = 0; id < size; id++) {
+                final int old = order[id];
+                final int length = textOffsets[old + 1] - textOffsets[old];
+                System.arraycopy(oldText, textOffsets[old], newText, offset, length);
+                offset += length;
+                newTextOffsets[id + 1] = offset;
+                newBitPatterns[id] = bitPatterns[old];
+                newMetadata[id] = metadata[old];
+                newScoreMultipliers[id] = (float) scoreMultipliers[old];
+
+                final int letters = (metadata[old] >>> LETTERS_SHIFT) & FIELD_MASK;
+                newScores[id] = letters * scoreMultipliers[old] * (acronyms[old] ? 0.5 : 1.0);
+            }
+
+            return new SegmentStore(newText, newTextOffsets, newBitPatterns, newMetadata, newScoreMultipliers, newScores);
+        }
+    }
+}
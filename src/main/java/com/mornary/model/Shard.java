@@ -0,0 +1,50 @@
+package com.mornary.model;
+
+/**
+ * One of several shards of an encode, for spreading a large encode across processes or machines.
+ * <p>
+ * The work units of the input are divided between the shards as evenly as possible, in order, so each shard encodes one
+ * contiguous, work unit aligned range of the input. Work units are encoded independently, so the shard outputs can be merged by
+ * joining them with the word delimiter.
+ *
+ * @param index The index of the shard, from 1 to count.
+ * @param count The number of shards.
+ *
+ * @author John Mortimore
+ */
+public record Shard(int index, int count) {
+
+    public Shard {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1, was " + count);
+        }
+        if (index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard index must be between 1 and " + count + ", was " + index);
+        }
+    }
+
+    /**
+     * Retrieves the first work unit of this shard.
+     *
+     * @param totalWorkUnits The number of work units in the entire input.
+     * @return The index of the first work unit.
+     */
+    public long getFirstWorkUnit(long totalWorkUnits) {
+        return totalWorkUnits * (index - 1) / count;
+    }
+
+    /**
+     * Retrieves the end of this shard, which is the first work unit of the next shard.
+     *
+     * @param totalWorkUnits The number of work units in the entire input.
+     * @return The index of the first work unit after this shard.
+     */
+    public long getEndWorkUnit(long totalWorkUnits) {
+        return totalWorkUnits * index / count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
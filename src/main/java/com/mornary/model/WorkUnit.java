@@ -18,6 +18,11 @@ public class WorkUnit {
      */
     int index;
 
+    /**
+     * The data of the work unit.
+     */
+    byte[] data;
+
     /**
      * Bit reader for the work unit.
      */
@@ -33,7 +38,28 @@ public class WorkUnit {
      */
     public WorkUnit(byte[] data, int length, int index) {
         this.index = index;
-        this.bitReader = new BitReader(Arrays.copyOf(data, length), length);
+        this.data = Arrays.copyOf(data, length);
+        this.bitReader = new BitReader(this.data, length);
+    }
+
+    /**
+     * Finds the shortest period of the work unit's data, i.e. the shortest pattern of bytes that the data repeats from start to
+     * end. For example, zero-filled data has a period of 1, and the data <code>abcabcab</code> has a period of 3.
+     *
+     * @param maxPeriod The longest period to look for.
+     * @return The shortest period, in bytes, or 0 if the data has no period of up to maxPeriod bytes.
+     */
+    public int findPeriod(int maxPeriod) {
+        for (int period = 1; period <= Math.min(maxPeriod, this.data.length - 1); period++) {
+            int i = period;
+            while (i < this.data.length && this.data[i] == this.data[i - period]) {
+                i++;
+            }
+            if (i == this.data.length) {
+                return period;
+            }
+        }
+        return 0;
     }
 
 }
@@ -0,0 +1,241 @@
+package com.mornary.service;
+
+import com.mornary.model.OperationSize;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Mornary batch service. Encodes or decodes many files within a single JVM so that the dictionaries only need to be loaded
+ * once and a single thread pool can be shared by every file in the batch.
+ *
+ * @author John Mortimore
+ */
+public class BatchService {
+
+    private static final Pattern GLOB_CHARACTERS = Pattern.compile("[*?\\[{]");
+
+    private final EncodeService encodeService;
+    private final DecodeService decodeService;
+
+    private final int threadPoolSize;
+
+    /**
+     * Constructs the BatchService.
+     *
+     * @param encodeService  The service used to encode every file in the batch. May be null if the batch is a decode.
+     * @param decodeService  The service used to decode every file in the batch. May be null if the batch is an encode.
+     * @param threadPoolSize The number of threads shared by all the files in the batch.
+     */
+    public BatchService(EncodeService encodeService, DecodeService decodeService, int threadPoolSize) {
+        this.encodeService = encodeService;
+        this.decodeService = decodeService;
+        this.threadPoolSize = threadPoolSize;
+    }
+
+    /**
+     * Encodes every file described by the given inputs and writes each result to the output directory.
+     * <p>
+     * Files small enough to fit in a single work unit are each submitted to the shared thread pool as a single task, so many small
+     * files are in flight at once. Larger files are encoded one at a time by the chunked parallel pipeline of
+     * {@link EncodeService#encode(File, File)}, using the same thread pool. The thread pool is the encoder's own, which is safe to
+     * share because a file's task never waits for another task.
+     *
+     * @param inputs          A directory, a glob pattern, or a text file containing one path per line. See {@link #resolveInputs(String)}.
+     * @param outputDirectory The directory to write the encoded files to. It will be created if it does not exist.
+     * @return The number of files that failed to encode.
+     */
+    public int encode(String inputs, File outputDirectory) throws IOException {
+        final Map<File, File> files = this.resolveOutputs(resolveInputs(inputs), outputDirectory);
+        final ExecutorService executor = this.encodeService.getExecutor();
+
+        final Map<File, Future<?>> futures = new LinkedHashMap<>();
+        int failures = 0;
+        for (Map.Entry<File, File> file : files.entrySet()) {
+            final File input = file.getKey();
+            final File output = file.getValue();
+            final long totalWorkUnits = (long) Math.ceil((double) input.length() / this.encodeService.getWorkUnitSize());
+
+            if (OperationSize.getOperationSize(totalWorkUnits) == OperationSize.SMALL) {
+                futures.put(input, executor.submit(() -> {
+                    this.encodeService.encodeInMemory(Files.readAllBytes(input.toPath()), output);
+                    return null;
+                }));
+            } else {
+                try {
+                    this.encodeService.encode(input, output, executor, false);
+                } catch (IOException | RuntimeException e) {
+                    failures++;
+                    System.err.printf("%nFailed to encode %s: %s%n", input, e.getMessage());
+                }
+            }
+        }
+        failures += this.awaitAll(futures, files.size(), "encode");
+        return failures;
+    }
+
+    /**
+     * Decodes every file described by the given inputs and writes each result to the output directory. Each file is decoded as a
+     * single task on the shared thread pool.
+     *
+     * @param inputs          A directory, a glob pattern, or a text file containing one path per line. See {@link #resolveInputs(String)}.
+     * @param outputDirectory The directory to write the decoded files to. It will be created if it does not exist.
+     * @return The number of files that failed to decode.
+     */
+    public int decode(String inputs, File outputDirectory) throws IOException {
+        final Map<File, File> files = this.resolveOutputs(resolveInputs(inputs), outputDirectory);
+        final ThreadPoolExecutor executor = this.createExecutor();
+
+        final Map<File, Future<?>> futures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<File, File> file : files.entrySet()) {
+                futures.put(file.getKey(), executor.submit(() -> {
+                    this.decodeService.decode(file.getKey(), file.getValue(), false);
+                    return null;
+                }));
+            }
+            return this.awaitAll(futures, files.size(), "decode");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Resolves the files described by the given inputs string.
+     * <ul>
+     *     <li>If the string is a directory, every regular file directly inside the directory is used.
+     *     <li>If the string contains glob characters (<code>*?[{</code>), every regular file matching the glob is used. The glob is
+     *         evaluated relative to the path elements that precede its first glob character, e.g. <code>logs/2026-*&#47;*.txt</code>.
+     *     <li>Otherwise, the string must be a text file that lists one input file per line. Blank lines are ignored.
+     * </ul>
+     *
+     * @param inputs The directory, glob, or file list.
+     * @return The input files, in a stable order.
+     */
+    static List<File> resolveInputs(String inputs) throws IOException {
+        if (GLOB_CHARACTERS.matcher(inputs).find()) {
+            // Split the glob into a base directory (no glob characters) and the pattern to match beneath it.
+            final String[] elements = inputs.split("[/\\\\]");
+            int firstGlobElement = 0;
+            while (!GLOB_CHARACTERS.matcher(elements[firstGlobElement]).find()) {
+                firstGlobElement++;
+            }
+            final Path base = firstGlobElement == 0
+                ? Paths.get(".")
+                : Paths.get(inputs.startsWith("/") ? "/" : "", Arrays.copyOfRange(elements, 0, firstGlobElement));
+            final PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                "glob:" + String.join("/", Arrays.copyOfRange(elements, firstGlobElement, elements.length))
+            );
+
+            try (Stream<Path> stream = Files.walk(base)) {
+                return stream
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(base.relativize(path)))
+                    .sorted()
+                    .map(Path::toFile)
+                    .toList();
+            }
+        }
+
+        final Path path = Paths.get(inputs);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> stream = Files.list(path)) {
+                return stream.filter(Files::isRegularFile).sorted().map(Path::toFile).toList();
+            }
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return reader.lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .map(File::new)
+                .toList();
+        }
+    }
+
+    /**
+     * Maps each input file to its output file in the output directory. Output files keep the name of their input file. Inputs that
+     * would overwrite the output of an earlier input are rejected.
+     *
+     * @param inputs          The input files.
+     * @param outputDirectory The output directory. It will be created if it does not exist.
+     * @return The input files mapped to their output files, in input order.
+     */
+    private Map<File, File> resolveOutputs(List<File> inputs, File outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory.toPath());
+
+        final Map<File, File> files = new LinkedHashMap<>();
+        final Set<String> names = new HashSet<>();
+        for (File input : inputs) {
+            if (!names.add(input.getName())) {
+                throw new IOException("More than one input file is named " + input.getName());
+            }
+            files.put(input, new File(outputDirectory, input.getName()));
+        }
+        return files;
+    }
+
+    /**
+     * Waits for every submitted file to complete, printing progress to the console and reporting any files that failed.
+     *
+     * @param futures    The submitted files and their futures.
+     * @param totalFiles The total number of files in the batch. Files that were not submitted are counted as already complete.
+     * @param operation  The name of the operation, for error messages.
+     * @return The number of submitted files that failed.
+     */
+    private int awaitAll(Map<File, Future<?>> futures, long totalFiles, String operation) {
+        int failures = 0;
+        long filesCompleted = totalFiles - futures.size();
+        try (PrintService progress = new PrintService(totalFiles, "Files", true)) {
+            for (Map.Entry<File, Future<?>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    failures++;
+                    System.err.printf("%nFailed to %s %s: %s%n", operation, future.getKey(), e.getCause().getMessage());
+                }
+                progress.setProgress(++filesCompleted);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Creates the thread pool shared by every file in a batch decode. The task queue is bounded; when it is full, the submitting
+     * thread runs the task itself, which stops the batch from reading ahead of the pool.
+     *
+     * @return The executor.
+     */
+    private ThreadPoolExecutor createExecutor() {
+        return new ThreadPoolExecutor(
+            this.threadPoolSize, this.threadPoolSize,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(this.threadPoolSize + 10),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+}
@@ -0,0 +1,150 @@
+package com.mornary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.model.Checkpoint;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+/**
+ * Service for saving and loading the checkpoints of a single file encode.
+ * <p>
+ * The checkpoint is saved as JSON next to the output file, at most once per {@link #SAVE_INTERVAL}, and deleted when the encode
+ * completes. It is written to a temporary file and then moved into place, so a crash never leaves a partial checkpoint.
+ * <p>
+ * In append mode, the checkpoint is saved to the output's state file instead, and kept when the encode completes, so that the
+ * next encode of the input only encodes what has been added to it. See {@link Checkpoint}.
+ *
+ * @author John Mortimore
+ */
+public class CheckpointService {
+
+    /**
+     * The minimum time between saved checkpoints.
+     */
+    static final Duration SAVE_INTERVAL = Duration.ofSeconds(5);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path checkpointFile;
+
+    /**
+     * The checkpoint the encode starts from. Has no progress if there was no checkpoint to resume from.
+     */
+    @Getter
+    private final Checkpoint start;
+
+    private final boolean append;
+
+    private Checkpoint latest;
+
+    /**
+     * The checkpoint before the latest work unit was written. In append mode, this is the checkpoint that is saved, as the latest
+     * work unit may be the partial last work unit of the input.
+     */
+    private Checkpoint previous;
+    private long lastSaveTime;
+
+    /**
+     * Constructs a new Checkpoint Service for an encode, loading the checkpoint of a previous, interrupted encode if there is one.
+     * A previous checkpoint is only resumed if it has the same input file and settings (see {@link Checkpoint#isResumableBy} and
+     * {@link Checkpoint#isAppendableBy}), and the output file still holds all the work units it records. Otherwise, the encode
+     * starts from the beginning.
+     *
+     * @param output The output file of the encode. The checkpoint is saved next to it.
+     * @param fresh  The checkpoint of the encode before any work units have been written.
+     * @param append True if the encode is in append mode.
+     */
+    public CheckpointService(File output, Checkpoint fresh, boolean append) throws IOException {
+        this.checkpointFile = (append ? getStateFile(output) : getCheckpointFile(output)).toPath();
+        this.append = append;
+
+        Checkpoint start = fresh;
+        if (Files.exists(this.checkpointFile)) {
+            final Checkpoint previous = OBJECT_MAPPER.readValue(this.checkpointFile.toFile(), Checkpoint.class);
+            final boolean matches = append ? previous.isAppendableBy(fresh) : previous.isResumableBy(fresh);
+            if (matches && output.length() >= previous.outputBytes()) {
+                // Saved checkpoints describe the input as it is now, which in append mode may differ from the previous encode.
+                start = fresh.withProgress(previous.workUnitsWritten(), previous.outputBytes());
+            } else {
+                System.err.printf("Checkpoint %s does not match this encode, starting from the beginning.%n", this.checkpointFile);
+            }
+        }
+        this.start = start;
+        this.latest = start;
+        this.previous = start;
+        this.lastSaveTime = System.nanoTime();
+    }
+
+    /**
+     * Retrieves the checkpoint file of an output file.
+     *
+     * @param output The output file.
+     * @return The checkpoint file.
+     */
+    public static File getCheckpointFile(File output) {
+        return new File(output.getPath() + ".checkpoint");
+    }
+
+    /**
+     * Retrieves the append mode state file of an output file.
+     *
+     * @param output The output file.
+     * @return The state file.
+     */
+    public static File getStateFile(File output) {
+        return new File(output.getPath() + ".state");
+    }
+
+    /**
+     * Records that a work unit has been written to the output, and saves a checkpoint if one is due. The output is flushed before
+     * the checkpoint is saved, so the checkpoint never records more output than has been written.
+     *
+     * @param workUnitsWritten The number of work units written to the output, including this one.
+     * @param length           The number of bytes written to the output for this work unit.
+     * @param output           The output the work unit was written to.
+     */
+    public void workUnitWritten(int workUnitsWritten, long length, Flushable output) throws IOException {
+        this.previous = this.latest;
+        this.latest = this.latest.withProgress(workUnitsWritten, this.latest.outputBytes() + length);
+
+        final long now = System.nanoTime();
+        if (now - this.lastSaveTime >= SAVE_INTERVAL.toNanos()) {
+            output.flush();
+            this.save(this.append ? this.previous : this.latest);
+            this.lastSaveTime = now;
+        }
+    }
+
+    /**
+     * Saves a checkpoint.
+     *
+     * @param checkpoint The checkpoint to save.
+     */
+    void save(Checkpoint checkpoint) throws IOException {
+        final Path temporaryFile = this.checkpointFile.resolveSibling(this.checkpointFile.getFileName() + ".tmp");
+        OBJECT_MAPPER.writeValue(temporaryFile.toFile(), checkpoint);
+        Files.move(temporaryFile, this.checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Completes the checkpoints, once the encode has completed. The checkpoint is deleted, or in append mode, saved as the state
+     * of the output.
+     *
+     * @param lastWorkUnitFull True if the last work unit written was full. A partial last work unit is left out of the state, so
+     *                         that the next encode in append mode encodes it again with the data that follows it.
+     */
+    public void complete(boolean lastWorkUnitFull) throws IOException {
+        if (this.append) {
+            this.save(lastWorkUnitFull ? this.latest : this.previous);
+        } else {
+            Files.deleteIfExists(this.checkpointFile);
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.mornary.service;
 
+import com.mornary.compression.PayloadOutputStream;
 import com.mornary.exception.NotTextException;
+import com.mornary.metrics.PipelineMetrics;
+import com.mornary.model.ByteRange;
+import com.mornary.model.MorseIndex;
 import com.mornary.utility.AsciiUtility;
 import com.mornary.utility.BinaryUtilities;
 import com.mornary.utility.OutputUtility;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * Mornary decoding service.
@@ -17,9 +26,9 @@ import java.io.OutputStream;
  */
 public class DecodeService {
 
-    private final int workUnitSize;
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
 
-    private final PrintService printService;
+    private final int workUnitSize;
 
     /**
      * Constructs the MornaryService.
@@ -28,7 +37,6 @@ public class DecodeService {
      */
     public DecodeService(int workUnitSize) {
         this.workUnitSize = workUnitSize;
-        this.printService = new PrintService();
     }
 
     /**
@@ -40,19 +48,21 @@ public class DecodeService {
      *               printed to the console. If it's not text, then an error will be thrown
      */
     public void decode(String input, File output) throws IOException {
+        METRICS.recordInMemoryInput(input.length());
         final String binary = this.morseCodeToBinaryString(input);
 
         byte[] decodedData = BinaryUtilities.binaryStringToByteArray(binary);
 
         try (OutputStream outputStream = OutputUtility.createOutputStream(output)) {
+            final OutputStream sink = output == null ? new TextOutputStream(outputStream) : outputStream;
+            final PayloadOutputStream payload = new PayloadOutputStream(sink);
 
-            if (output != null || AsciiUtility.isAsciiText(decodedData)) {
-                outputStream.write(decodedData);
-                if (output == null) { // Write an extra line separator for console output.
-                    outputStream.write(System.lineSeparator().getBytes());
-                }
-            } else {
-                throw new NotTextException();
+            final long writeStart = System.nanoTime();
+            payload.write(decodedData);
+            payload.finish();
+            METRICS.recordWrite(decodedData.length, System.nanoTime() - writeStart);
+            if (output == null) { // Write an extra line separator for console output.
+                outputStream.write(System.lineSeparator().getBytes());
             }
         }
     }
@@ -67,6 +77,20 @@ public class DecodeService {
      *               printed to the console. If it's not text, then an error will be thrown
      */
     public void decode(File input, File output) throws IOException {
+        // Progress updates are printed to the console only when output is written to a file.
+        this.decode(input, output, output != null);
+    }
+
+    /**
+     * Decodes the given input file from Morse code into the original binary data. See {@link #decode(File, File)}.
+     * <p>
+     * Batch operations use this method to suppress the progress updates of the individual files.
+     *
+     * @param input            The file containing Morse code to be decoded.
+     * @param output           The file to write the output to. If null, the output is printed to the console.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     */
+    void decode(File input, File output, boolean printingProgress) throws IOException {
 
         final long fileSize = input.length();
         final long totalWorkUnits = (long) Math.ceil((double) fileSize / this.workUnitSize);
@@ -75,9 +99,142 @@ public class DecodeService {
             InputStream is = input.toURI().toURL().openStream();
             OutputStream outputStream = OutputUtility.createOutputStream(output)
         ) {
+            this.decode(is, outputStream, totalWorkUnits, output == null, printingProgress);
+        } catch (IOException e) {
+            System.err.printf("Failed to read from %s: %s%n", input, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes part of the given input file and writes the result to the given output file, or to the console if output is null.
+     * <p>
+     * The input file's sidecar index (see {@link MorseIndex}) is used to start decoding at the closest indexed work unit before the
+     * range, so only the Morse code around the range is read, however large the input file is.
+     *
+     * @param input  The file containing Morse code to be decoded. It must have been encoded with an index.
+     * @param output The file to write the output to. If the file exists, it will be truncated; if it does not exist, it will be
+     *               created. If omitted, and the raw data is text, it will be printed to the console. If it's not text, then an
+     *               error will be thrown
+     * @param range  The range of the original input to decode. A range that extends past the end of the input is cut short.
+     * @throws IOException If the input file has no index, the index does not match the input file, or the range starts past the
+     *                     end of the original input.
+     */
+    public void decode(File input, File output, ByteRange range) throws IOException {
+        final File indexFile = MorseIndex.getIndexFile(input);
+        if (!indexFile.isFile()) {
+            throw new FileNotFoundException("No index found for " + input + ", encode it with --index to create " + indexFile);
+        }
+
+        final MorseIndex index = MorseIndex.open(indexFile);
+        if (index.getOutputSize() != input.length()) {
+            throw new IOException("Index " + indexFile + " does not match " + input + ", it may have been modified since encoding");
+        }
+        if (range.start() > index.getInputSize()) {
+            throw new IOException("Range " + range + " starts past the end of the original input (" + index.getInputSize() + " bytes)");
+        }
+
+        final long length = Math.min(range.length(), index.getInputSize() - range.start());
+
+        try (OutputStream outputStream = OutputUtility.createOutputStream(output)) {
+            final OutputStream sink = output == null ? new TextOutputStream(outputStream) : outputStream;
+
+            if (length > 0) {
+                final MorseIndex.Position position = index.locate(range.start());
+                try (FileChannel channel = FileChannel.open(input.toPath())) {
+                    channel.position(position.outputOffset());
+                    this.decodeRange(Channels.newInputStream(channel), sink, position.skipBytes(), length);
+                }
+            }
+
+            if (output == null) { // Write an extra line separator for console output.
+                outputStream.write(System.lineSeparator().getBytes());
+            }
+        }
+    }
+
+    /**
+     * Decodes the given input stream from Morse code, one work unit at a time, and writes only the requested part of the decoded
+     * data. Stops reading once the requested part has been written.
+     * <p>
+     * Helper method for {@link #decode(File, File, ByteRange)}. The decoded data is written as-is: a range of the payload is a
+     * range of the original input, as the payload header is accounted for by the index.
+     *
+     * @param is           The stream containing Morse code to be decoded, starting at a work unit boundary. It is not closed by
+     *                     this method.
+     * @param outputStream The stream to write the output to. It is not closed by this method.
+     * @param skipBytes    The number of decoded bytes to skip before the requested part.
+     * @param length       The number of decoded bytes to write.
+     */
+    private void decodeRange(InputStream is, OutputStream outputStream, long skipBytes, long length) throws IOException {
+        final byte[] dataBuffer = new byte[this.workUnitSize];
+        final StringBuilder binaryStringBuffer = new StringBuilder();
+        long skip = skipBytes;
+        long remaining = length;
+
+        long readStart = System.nanoTime();
+        int readLength;
+        while (remaining > 0 && (readLength = is.read(dataBuffer, 0, this.workUnitSize)) > 0) {
+            METRICS.recordRead(readLength, System.nanoTime() - readStart);
+
+            binaryStringBuffer.append(this.morseCodeToBinaryString(AsciiUtility.toAsciiText(dataBuffer, readLength)));
+            final int numBitsToWrite = 8 * (binaryStringBuffer.length() / 8);
+            final byte[] decodedData = BinaryUtilities.binaryStringToByteArray(binaryStringBuffer.substring(0, numBitsToWrite));
+            binaryStringBuffer.delete(0, numBitsToWrite);
+
+            final int from = (int) Math.min(skip, decodedData.length);
+            final int to = (int) Math.min(decodedData.length, from + remaining);
+            skip -= from;
+            remaining -= to - from;
+
+            final long writeStart = System.nanoTime();
+            outputStream.write(decodedData, from, to - from);
+            METRICS.recordWrite(to - from, System.nanoTime() - writeStart);
+
+            readStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Decodes the given input stream, of unknown length, from Morse code into the original binary data and writes the result to
+     * the given output file, or to the console if output is null. This allows Mornary to read from standard input.
+     * <p>
+     * Unlike {@link #decode(File, File)}, console output is written as-is, even if it is not text, and without an extra line
+     * separator, so that it can be piped into other programs.
+     *
+     * @param input  The stream containing Morse code to be decoded. It is not closed by this method.
+     * @param output The file to write the output to. If the file exists, it will be truncated; if it does not exist, it will be
+     *               created. If null, the output is written to the console.
+     */
+    public void decode(InputStream input, File output) throws IOException {
+        try (OutputStream outputStream = OutputUtility.createOutputStream(output)) {
+            // Progress updates are printed to the console only when output is written to a file.
+            this.decode(input, outputStream, -1, false, output != null);
+        }
+    }
+
+    /**
+     * Decodes the given input stream from Morse code into the original binary data, one work unit at a time.
+     *
+     * @param is               The stream containing Morse code to be decoded. It is not closed by this method.
+     * @param outputStream     The stream to write the output to. It is not closed by this method.
+     * @param totalWorkUnits   The number of work units in the input, or -1 if the number is not known.
+     * @param console          True if the output is console text. Non-text output is rejected with a {@link NotTextException},
+     *                         and an extra line separator is written at the end.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     */
+    void decode(InputStream is, OutputStream outputStream, long totalWorkUnits, boolean console, boolean printingProgress)
+        throws IOException {
+
+        try (PrintService progress = new PrintService(totalWorkUnits, "Work Units", printingProgress)) {
+
+            // The decoded payload may be compressed, in which case it is inflated as it is written.
+            final OutputStream sink = console ? new TextOutputStream(outputStream) : outputStream;
+            final PayloadOutputStream payload = new PayloadOutputStream(sink);
 
             // Read off the first "workUnitSize" bytes to the data buffer (or less if the file is under "workUnitSize" bytes).
             byte[] dataBuffer = new byte[this.workUnitSize];
+            long readStart = System.nanoTime();
             int readLength = is.read(dataBuffer, 0, this.workUnitSize);
 
 
@@ -86,6 +243,7 @@ public class DecodeService {
 
             // Loop until all the data has been read into the buffer.
             while (readLength > 0) {
+                METRICS.recordRead(readLength, System.nanoTime() - readStart);
 
                 // Convert data to ASCII and append to the end of the morseCode string.
                 String morseCode = AsciiUtility.toAsciiText(dataBuffer, readLength);
@@ -98,41 +256,35 @@ public class DecodeService {
 
                 byte[] decodedData = BinaryUtilities.binaryStringToByteArray(binaryStringBuffer.substring(0, numBitsToWrite));
 
-                if (output != null || AsciiUtility.isAsciiText(decodedData)) {
-                    outputStream.write(decodedData);
-                } else {
-                    throw new NotTextException();
-                }
-                writeIndex++;
-
-                if (output != null) { // If using a file output, print progress to console.
-                    this.printService.printProgress(writeIndex, totalWorkUnits);
-                }
+                final long writeStart = System.nanoTime();
+                payload.write(decodedData);
+                METRICS.recordWrite(decodedData.length, System.nanoTime() - writeStart);
+                progress.setProgress(++writeIndex);
 
                 binaryStringBuffer = new StringBuilder(binaryStringBuffer.substring(numBitsToWrite));
 
                 // Read another "workUnitSize" bytes
+                readStart = System.nanoTime();
                 readLength = is.read(dataBuffer, 0, this.workUnitSize);
             }
 
             if (!binaryStringBuffer.isEmpty()) {
-                System.out.println("Error: Input file was decoded, but number of bits not divisible by 8. " +
+                System.err.println("Error: Input file was decoded, but number of bits not divisible by 8. " +
                                    "Remaining bits not written to output: " + binaryStringBuffer);
             }
 
-            if (output == null) { // Write an extra line separator at the end for console output.
+            payload.finish();
+
+            if (console) { // Write an extra line separator at the end for console output.
                 outputStream.write(System.lineSeparator().getBytes());
             }
-
-        } catch (IOException e) {
-            System.err.printf("Failed to read from %s: %s%n", input, e.getMessage());
-            throw e;
         }
     }
 
     /**
      * Converts a string of morse code into a binary string.
-     * Dots become zeros, dashes become ones, spaces and forward slashes are removed.
+     * Dots become zeros, dashes become ones, spaces and forward slashes are removed. Line separators (e.g. a trailing newline
+     * from a pipe or a text editor) are removed too.
      *
      * @param morse The Morse code string.
      * @return The matching binary string.
@@ -142,7 +294,36 @@ public class DecodeService {
             .replace('.', '0')
             .replace('-', '1')
             .replace(" ", "")
-            .replace("/", "");
+            .replace("/", "")
+            .replace("\n", "")
+            .replace("\r", "");
     }
 
+    /**
+     * Output stream for the console that only accepts ASCII text.
+     */
+    private static class TextOutputStream extends FilterOutputStream {
+
+        /**
+         * Constructs a new Text Output Stream.
+         *
+         * @param out The console output stream.
+         */
+        TextOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!AsciiUtility.isAsciiText(Arrays.copyOfRange(b, off, off + len))) {
+                throw new NotTextException();
+            }
+            out.write(b, off, len);
+        }
+    }
 }
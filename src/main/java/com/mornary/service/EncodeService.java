@@ -1,57 +1,75 @@
 package com.mornary.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.compression.ParallelDeflaterInputStream;
+import com.mornary.compression.PayloadHeader;
+import com.mornary.metrics.PipelineMetrics;
+import com.mornary.metrics.ReorderWaitEvent;
+import com.mornary.metrics.WorkUnitEncodedEvent;
+import com.mornary.metrics.WriteFlushEvent;
+import com.mornary.model.EncodeOptions;
 import com.mornary.model.EncodingBinaryTree;
 import com.mornary.model.BitReader;
-import com.mornary.model.MorseTrie;
-import com.mornary.model.MorseTrieNode;
+import com.mornary.model.CandidateCache;
+import com.mornary.model.Checkpoint;
+import com.mornary.model.RadixMorseTrie;
+import com.mornary.model.RadixMorseTrieNode;
+import com.mornary.model.SegmentStore;
+import com.mornary.model.Shard;
 import com.mornary.model.OperationSize;
+import com.mornary.model.Optimization;
 import com.mornary.model.WeightedDictionary;
-import com.mornary.model.Encoding;
 import com.mornary.model.IndexedResult;
+import com.mornary.model.MemoryPlan;
+import com.mornary.model.MorseDictionary;
+import com.mornary.model.MorseIndex;
 import com.mornary.model.TextSegment;
 import com.mornary.model.EncodingNode;
-import com.mornary.model.Match;
+import com.mornary.model.EntryStatistics;
 import com.mornary.model.WorkUnit;
 import com.mornary.utility.MorseUtility;
 import com.mornary.utility.OutputUtility;
+import lombok.Getter;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Comparator;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Mornary encoding service.
  *
  * @author John Mortimore
  */
-public class EncodeService {
+public class EncodeService implements AutoCloseable {
 
     private static final String MORSE_CODE_WORD_DELIMITER = " / ";
 
-    private final EncodingBinaryTree singleCharacterTree;
-
     private static final WeightedDictionary DICT_FIVE_GRAM = new WeightedDictionary("/5grams_english.txt", 1.5);
     private static final WeightedDictionary DICT_FOUR_GRAM = new WeightedDictionary("/4grams_english.txt", 1.1);
     private static final WeightedDictionary DICT_COMMON = new WeightedDictionary("/English5000.txt", 1.0);    // Top 5000 common English words
@@ -59,101 +77,356 @@ public class EncodeService {
     private static final WeightedDictionary DICT_TWO_GRAM = new WeightedDictionary("/2grams_english.txt", .9);  // 5000 English 2grams
     private static final WeightedDictionary DICT_RARE = new WeightedDictionary("/EnglishHugeAlpha.txt", .7); // Hugh English dictionary
 
-    static final List<WeightedDictionary> DICTIONARIES = List.of(
+    /**
+     * Every dictionary, in priority order. When the encoder has a memory budget, as many dictionaries are loaded from the start
+     * of this list as fit. The small dictionaries come first; the huge dictionary adds the most matches but needs the most memory.
+     */
+    public static final List<WeightedDictionary> DICTIONARIES = List.of(
+        DICT_COMMON,
         DICT_FIVE_GRAM,
         DICT_FOUR_GRAM,
-        DICT_COMMON,
         DICT_THREE_GRAM,
         DICT_TWO_GRAM,
         DICT_RARE
     );
 
-    static final List<WeightedDictionary> DICTIONARIES_REDUCED_SET = List.of(
+    public static final List<WeightedDictionary> DICTIONARIES_REDUCED_SET = List.of(
         DICT_COMMON
     );
 
-    private final MorseTrie morseTrie = new MorseTrie();
+    /**
+     * The loaded dictionaries. Shared with every other encoder that uses the same dictionaries.
+     */
+    @Getter
+    private final MorseDictionary dictionary;
+
+    /**
+     * The text segments of every dictionary entry. The trie nodes refer to text segments by their ids in this store.
+     */
+    private final SegmentStore segmentStore;
 
-    private final PrintService printService;
+    private final RadixMorseTrie morseTrie;
 
+    private final EncodingBinaryTree singleCharacterTree;
+
+    @Getter
     private final int workUnitSize;
+    @Getter
     private final int threadPoolSize;
+    @Getter
     private final int queueCapacity;
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    /**
+     * How the encoder fits into its memory budget. Null if it has no budget.
+     */
+    @Getter
+    private final MemoryPlan memoryPlan;
+
+    @Getter
+    private final EncodeOptions options;
+
+    /**
+     * The thread pool that work units are encoded on. It lives as long as the encoder, so that an encoder which is reused for
+     * many inputs does not start new threads for each of them; idle threads time out after {@link #IDLE_THREAD_TIMEOUT}.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * How long a thread of the encoder's thread pool is kept once it has no more work units to encode.
+     */
+    static final Duration IDLE_THREAD_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
 
     /**
-     * Constructs the MornaryService.
+     * The largest in-memory input, in bytes, that is encoded as a single work unit. Larger inputs are encoded in parallel.
+     */
+    static final int PARALLEL_ENCODING_THRESHOLD = 64 * 1024;
+
+    /**
+     * The longest pattern, in bytes, that repeating work units are detected for. See
+     * {@link #encodePeriodicWorkUnit(WorkUnit, int)}.
+     */
+    static final int MAX_PERIOD = 64;
+
+    /**
+     * The smallest block of a repeating pattern that is encoded as a whole, in bytes.
+     */
+    static final int MIN_BLOCK_SIZE = 64;
+
+    /**
+     * The number of different encodings that are precomputed for each block of a repeating pattern.
+     */
+    static final int BLOCK_ENCODINGS = 32;
+
+    /**
+     * The most blocks of repeating patterns whose encodings are kept. Once this many are kept, work units with any other pattern
+     * are encoded normally, as precomputing every encoding of a block is only worth it for patterns that recur.
+     */
+    static final int MAX_BLOCK_PATTERNS = 64;
+
+    /**
+     * The precomputed encodings of blocks of repeating patterns, keyed by the block.
+     */
+    private final Map<ByteBuffer, EncodedText[]> blockEncodings = new ConcurrentHashMap<>();
+
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
+
+    /**
+     * Constructs the MornaryService with the default options.
      *
      * @param workUnitSize   The number of bytes of input to be processed per thread task.
      * @param threadPoolSize The number of threads to use for encoding.
+     * @param lowMemory      True if the reduced set of dictionaries should be loaded.
      */
     public EncodeService(int workUnitSize, int threadPoolSize, boolean lowMemory) throws IOException {
+        this(workUnitSize, threadPoolSize, lowMemory, EncodeOptions.DEFAULT);
+    }
+
+    /**
+     * Constructs the MornaryService. The dictionaries are only loaded if no other encoder has loaded them yet; see
+     * {@link MorseDictionary#getInstance(List, Set)}.
+     *
+     * @param workUnitSize   The number of bytes of input to be processed per thread task.
+     * @param threadPoolSize The number of threads to use for encoding.
+     * @param lowMemory      True if the reduced set of dictionaries should be loaded. Ignored if the options have a memory budget.
+     * @param options        Options that control how inputs are processed.
+     * @throws IllegalArgumentException If the options have a memory budget that is too small for even the first dictionary.
+     */
+    public EncodeService(int workUnitSize, int threadPoolSize, boolean lowMemory, EncodeOptions options) throws IOException {
+        this(workUnitSize, threadPoolSize, lowMemory, options, planMemory(options.memoryBudget(), workUnitSize, threadPoolSize));
+    }
+
+    /**
+     * Constructs the MornaryService with already loaded dictionaries. This allows an application that embeds Mornary to create
+     * encoders with different options that all share one set of dictionaries.
+     *
+     * @param workUnitSize   The number of bytes of input to be processed per thread task.
+     * @param threadPoolSize The number of threads to use for encoding.
+     * @param dictionary     The dictionaries to encode with.
+     * @param options        Options that control how inputs are processed. The memory budget and alphabets are ignored, as the
+     *                       dictionaries are already loaded with their alphabets.
+     */
+    public EncodeService(int workUnitSize, int threadPoolSize, MorseDictionary dictionary, EncodeOptions options) {
+        this(workUnitSize, threadPoolSize, dictionary, options, null);
+    }
+
+    private EncodeService(int workUnitSize, int threadPoolSize, boolean lowMemory, EncodeOptions options, MemoryPlan memoryPlan)
+        throws IOException {
+        this(workUnitSize, threadPoolSize, MorseDictionary.getInstance(memoryPlan != null
+            ? DICTIONARIES.subList(0, memoryPlan.dictionaryCount())
+            : lowMemory ? DICTIONARIES_REDUCED_SET : DICTIONARIES, options.alphabets()), options, memoryPlan);
+    }
+
+    private EncodeService(int workUnitSize, int threadPoolSize, MorseDictionary dictionary, EncodeOptions options,
+                          MemoryPlan memoryPlan) {
         this.workUnitSize = workUnitSize;
         this.threadPoolSize = threadPoolSize;
-        this.queueCapacity = threadPoolSize + 10;
-
-        // Load in the binary tree.
-        URL morseUrl = getClass().getResource("/morsecode.json");
-        assert morseUrl != null;
-        try (InputStream in = morseUrl.openStream()) {
-            Encoding[] encodings = OBJECT_MAPPER.readValue(in, Encoding[].class);
-            this.singleCharacterTree = new EncodingBinaryTree(encodings);
-        }
+        this.options = options;
+        this.memoryPlan = memoryPlan;
+        this.queueCapacity = memoryPlan != null ? memoryPlan.queueCapacity() : threadPoolSize + 10;
 
-        // Load in dictionary files.
-        List<WeightedDictionary> dictionaries = lowMemory ? DICTIONARIES_REDUCED_SET :  DICTIONARIES;
+        this.dictionary = dictionary;
+        this.segmentStore = dictionary.getSegmentStore();
+        this.morseTrie = dictionary.getMorseTrie();
+        this.singleCharacterTree = dictionary.getSingleCharacterTree();
 
-        for (WeightedDictionary weightedDictionary : dictionaries) {
-            try (
-                InputStream is = getClass().getResourceAsStream(weightedDictionary.filename())
-            ) {
-                if (is == null) {
-                    throw new RuntimeException("Dictionary not found: " +  weightedDictionary.filename());
-                }
+        this.executor = this.createExecutor();
+    }
 
-                new BufferedReader(new InputStreamReader(is))
-                    .lines()
-                    .map(englishText -> {
-                        String morse = MorseUtility.toMorseCode(englishText);
-                        return new TextSegment(englishText, morse, weightedDictionary.scoreMultiplier());
-                    })
-                    .distinct()
-                    .forEach(this.morseTrie::insert);
+    /**
+     * Plans how the dictionaries and the task queue fit into a memory budget.
+     *
+     * @param memoryBudget   The memory budget, in bytes, or 0 if there is no budget.
+     * @param workUnitSize   The number of bytes of input to be processed per thread task.
+     * @param threadPoolSize The number of threads to use for encoding.
+     * @return The memory plan, or null if there is no budget.
+     * @throws IllegalArgumentException If the budget is too small for even the first dictionary.
+     */
+    private static MemoryPlan planMemory(long memoryBudget, int workUnitSize, int threadPoolSize) throws IOException {
+        if (memoryBudget <= 0) {
+            return null;
+        }
 
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load dictionary", e);
-            }
+        final long[] footprints = new long[DICTIONARIES.size()];
+        for (int i = 0; i < footprints.length; i++) {
+            footprints[i] = MorseDictionary.estimateFootprint(DICTIONARIES.get(i));
         }
+        return MemoryPlan.fit(memoryBudget, footprints, workUnitSize, threadPoolSize);
+    }
 
-        this.printService = new PrintService();
+    /**
+     * Retrieves the number of dictionaries that the encoder can load.
+     *
+     * @return The number of dictionaries.
+     */
+    public static int getNumberOfDictionaries() {
+        return DICTIONARIES.size();
+    }
+
+    /**
+     * Retrieves how long it took to load the dictionaries into the trie. If the dictionaries were already loaded by another
+     * encoder, this is how long it took that encoder.
+     *
+     * @return The load time.
+     */
+    public Duration getDictionaryLoadTime() {
+        return this.dictionary.getLoadTime();
     }
 
     /**
-     * Encodes the given input text as Morse code and prints the output to the console.
+     * Encodes the given input text as Morse code and writes the result to the specified output file, or to the console if output
+     * is null.
      *
      * @param input  The text to encode.
      * @param output The file to write the Morse code output to. If the file exists, it will be truncated; if it does not exist,
      *               it will be created. If null, then encoded data will be printed to the console.
-     * @implNote This method is designed for small text inputs where there are no memory concerns with reading the entire input into
-     *           memory and with writing the entire output in a single operation. For large inputs where memory use and processing
-     *           speed need to be considered, {@link #encode(File, File)} should be used.
+     * @implNote See {@link #encode(byte[], File)}.
      */
     public void encode(String input, File output) throws IOException {
-        byte[] data = input.getBytes(StandardCharsets.UTF_8);
+        this.encode(input.getBytes(StandardCharsets.UTF_8), output);
+    }
+
+    /**
+     * Encodes the given in-memory data as Morse code and writes the result to the specified output file, or to the console if
+     * output is null.
+     * <p>
+     * Data of up to {@link #PARALLEL_ENCODING_THRESHOLD} bytes is encoded as a single work unit on the calling thread. Larger data
+     * is split into work units and encoded with the same parallel pipeline as {@link #encode(File, File)}.
+     *
+     * @param input  The data to encode.
+     * @param output The file to write the Morse code output to. If the file exists, it will be truncated; if it does not exist,
+     *               it will be created. If null, then encoded data will be printed to the console.
+     * @implNote The entire input is held in memory, and for small inputs the entire output is too. For large inputs where memory
+     *           use needs to be considered, {@link #encode(File, File)} should be used.
+     */
+    public void encode(byte[] input, File output) throws IOException {
+        if (input.length <= PARALLEL_ENCODING_THRESHOLD) {
+            this.encodeInMemory(input, output);
+            return;
+        }
+
+        this.encodeInParallel(new ByteArrayInputStream(input), input.length, output, false);
+        if (output == null) { // Write an extra line separator for console output, as with the single work unit.
+            System.out.println();
+        }
+    }
+
+    /**
+     * Encodes many in-memory inputs as Morse code, spreading their work units across the encoder's thread pool, and returns the
+     * results in the order of the inputs.
+     * <p>
+     * Each input is encoded exactly as {@link #encode(byte[], File)} would encode it: inputs of up to
+     * {@link #PARALLEL_ENCODING_THRESHOLD} bytes are a single work unit, and larger inputs are split into work units. Every work
+     * unit of every input is submitted before any result is awaited, so a list of small inputs keeps the whole pool busy.
+     * <p>
+     * This method is thread-safe. Any number of threads may call it, and the other encode methods, on the same encoder at once.
+     *
+     * @param inputs The data to encode.
+     * @return The Morse code of each input.
+     * @implNote Every input and every result is held in memory. For large inputs where memory use needs to be considered,
+     *           {@link #encode(File, File)} should be used.
+     */
+    public List<String> encodeAll(List<byte[]> inputs) throws IOException {
+        final ExecutorService executor = this.getExecutor();
+        final List<List<Future<String>>> futures = new ArrayList<>(inputs.size());
+
+        for (byte[] input : inputs) {
+            METRICS.recordInMemoryInput(input.length);
+            final byte[] payload = this.toPayload(input);
+
+            if (input.length <= PARALLEL_ENCODING_THRESHOLD) {
+                final WorkUnit workUnit = new WorkUnit(payload, payload.length, 0);
+                futures.add(List.of(executor.submit(() -> this.encodeWorkUnit(workUnit, OperationSize.SMALL))));
+                continue;
+            }
+
+            final int totalWorkUnits = Math.ceilDiv(payload.length, this.workUnitSize);
+            final OperationSize operationSize = OperationSize.getOperationSize(totalWorkUnits);
+            final List<Future<String>> workUnitFutures = new ArrayList<>(totalWorkUnits);
+            for (int i = 0; i < totalWorkUnits; i++) {
+                final int from = i * this.workUnitSize;
+                final byte[] data = Arrays.copyOfRange(payload, from, Math.min(payload.length, from + this.workUnitSize));
+                final WorkUnit workUnit = new WorkUnit(data, data.length, i);
+                workUnitFutures.add(executor.submit(() -> this.encodeWorkUnit(workUnit, operationSize)));
+            }
+            futures.add(workUnitFutures);
+        }
+
+        final List<String> results = new ArrayList<>(inputs.size());
+        try {
+            for (List<Future<String>> workUnitFutures : futures) {
+                final StringJoiner morse = new StringJoiner(MORSE_CODE_WORD_DELIMITER);
+                for (Future<String> future : workUnitFutures) {
+                    morse.add(future.get());
+                }
+                results.add(morse.toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
 
-        WorkUnit workUnit = new WorkUnit(data, data.length, 0);
+    /**
+     * Encodes the given in-memory data as a single work unit and writes the result to the specified output file, or to the
+     * console if output is null.
+     * <p>
+     * Helper method for {@link #encode(byte[], File)} and for the small files of a batch operation.
+     *
+     * @param data   The data to encode.
+     * @param output The file to write the Morse code output to. If the file exists, it will be truncated; if it does not exist,
+     *               it will be created. If null, then encoded data will be printed to the console.
+     */
+    void encodeInMemory(byte[] data, File output) throws IOException {
+        METRICS.recordInMemoryInput(data.length);
+        final byte[] payload = this.toPayload(data);
+        WorkUnit workUnit = new WorkUnit(payload, payload.length, 0);
 
         String encodedWorkUnit = this.encodeWorkUnit(workUnit, OperationSize.SMALL);
 
         try (BufferedWriter writer = OutputUtility.createWriter(output)) {
+            final long writeStart = System.nanoTime();
             writer.write(encodedWorkUnit);
+            METRICS.recordWrite(encodedWorkUnit.length(), System.nanoTime() - writeStart);
             if (output == null) { // Write an extra line separator for console output.
                 writer.newLine();
             }
         }
     }
 
+    /**
+     * Converts in-memory data into the payload to be encoded. The data is compressed if compression is enabled, and escaped if it
+     * happens to start like a payload header.
+     *
+     * @param data The data.
+     * @return The payload.
+     */
+    private byte[] toPayload(byte[] data) throws IOException {
+        if (this.options.compress()) {
+            return ParallelDeflaterInputStream.deflate(data);
+        } else if (PayloadHeader.startsWithMagic(data, data.length)) {
+            return concat(PayloadHeader.create(PayloadHeader.STORED), data);
+        }
+        return data;
+    }
+
+    /**
+     * Concatenates two byte arrays.
+     *
+     * @param first  The first array.
+     * @param second The second array.
+     * @return A new array containing the elements of the first array followed by the elements of the second.
+     */
+    private static byte[] concat(byte[] first, byte[] second) {
+        final byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
     /**
      * Encodes the given input file into Morse code and writes the result to the specified output file,
      * or to the console if output is null.
@@ -176,47 +449,202 @@ public class EncodeService {
      *         remains bounded.
      * </ul>
      *
+     * If {@link EncodeOptions#resume()} is enabled and output is written to a file, a {@link Checkpoint} is saved next to the
+     * output file as work units are written, and the encode resumes from the checkpoint if it was interrupted. See
+     * {@link CheckpointService}. If {@link EncodeOptions#append()} is enabled, the checkpoint is kept as the state of the output
+     * once the encode completes, and the next encode of the input only encodes what has been added to it since, appending it to
+     * the output.
+     *
      * @param input  The file to encode as Morse code.
-     * @param output The file to write the Morse code output to. If the file exists, it will be truncated; if it does not exist,
-     *               it will be created. If null, then encoded data will be printed to the console.
+     * @param output The file to write the Morse code output to. If the file exists, it will be truncated (unless the encode is
+     *               being resumed or appended to); if it does not exist, it will be created. If null, then encoded data will be
+     *               printed to the console.
      * @implNote This method is designed for large files where reading the entire content into memory is impractical. It combines
      *           incremental reading, parallel processing, and ordered streaming output for efficient memory usage. When these
      *           concerns do not exist, {@link #encode(String, File)} may be used instead as it has less overhead.
      */
     public void encode(File input, File output) throws IOException {
-        final long fileSize = input.length();
-        final long totalWorkUnits = (long) Math.ceil((double) fileSize / this.workUnitSize);
-        final OperationSize operationSize = OperationSize.getOperationSize(totalWorkUnits);
-        final boolean printingProgress = output != null; // Progress updates are printed to the console only when output is written to a file.
+        // Progress updates are printed to the console only when output is written to a file.
+        this.encode(input, output, this.getExecutor(), output != null);
+    }
 
-        final int actualNumberOfThreads = Math.toIntExact(Math.min(totalWorkUnits, this.threadPoolSize));
+    /**
+     * Encodes the given input stream, of unknown length, into Morse code and writes the result to the specified output file, or
+     * to the console if output is null. This allows Mornary to read from standard input.
+     * <p>
+     * The stream is encoded with the same pipeline as {@link #encode(File, File)}. Memory use remains bounded however long the
+     * stream is.
+     *
+     * @param input  The stream to encode as Morse code. It is not closed by this method.
+     * @param output The file to write the Morse code output to. If the file exists, it will be truncated; if it does not exist,
+     *               it will be created. If null, then encoded data will be written to the console.
+     */
+    public void encode(InputStream input, File output) throws IOException {
+        this.encodeInParallel(input, -1, output, output != null);
+    }
 
-        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
-            actualNumberOfThreads, actualNumberOfThreads,
-            0L, TimeUnit.MILLISECONDS,
-            new ArrayBlockingQueue<>(this.queueCapacity),
-            new ThreadPoolExecutor.CallerRunsPolicy()
-        );
+    /**
+     * Encodes the given input stream into Morse code on the encoder's thread pool. See {@link #encode(File, File)} for details of
+     * the pipeline.
+     *
+     * @param input            The stream to encode as Morse code. It is not closed by this method.
+     * @param inputSize        The number of bytes in the stream, or -1 if the size is not known.
+     * @param output           The file to write the Morse code output to. If null, then encoded data will be printed to the console.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     */
+    private void encodeInParallel(InputStream input, long inputSize, File output, boolean printingProgress) throws IOException {
+        this.encode(input, inputSize, output, this.getExecutor(), printingProgress, null);
+    }
+
+    /**
+     * Encodes the given input file into Morse code using the supplied executor for the work units. See {@link #encode(File, File)}
+     * for details of the pipeline.
+     * <p>
+     * Batch operations use this method so that a single thread pool can be shared by every file in the batch.
+     *
+     * @param input            The file to encode as Morse code.
+     * @param output           The file to write the Morse code output to. If null, then encoded data will be printed to the console.
+     * @param executor         The executor to run the work units on. It should apply backpressure (e.g. a bounded queue with
+     *                         {@link ThreadPoolExecutor.CallerRunsPolicy}); it is not shut down by this method.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     */
+    void encode(File input, File output, ExecutorService executor, boolean printingProgress) throws IOException {
+        CheckpointService checkpoints = null;
+        if (output != null) {
+            // The sidecar files of a previous encode to the same output would not match this encode's output.
+            if (!this.options.append()) {
+                Files.deleteIfExists(CheckpointService.getStateFile(output).toPath());
+            }
+            if (!this.options.index()) {
+                Files.deleteIfExists(MorseIndex.getIndexFile(output).toPath());
+            }
+
+            if (this.options.resume() || this.options.append()) {
+                final Checkpoint fresh = new Checkpoint(input.getAbsolutePath(), input.length(), input.lastModified(),
+                    Checkpoint.fingerprint(input, this.workUnitSize), this.workUnitSize, this.options.compress(),
+                    this.options.shard(), 0, 0);
+                checkpoints = new CheckpointService(output, fresh, this.options.append());
+            }
+        }
+
+        try (InputStream is = input.toURI().toURL().openStream()) {
+            this.encode(is, input.length(), output, executor, printingProgress, checkpoints);
+        }
+    }
+
+    /**
+     * Encodes the given input stream into Morse code using the supplied executor for the work units. This is the pipeline
+     * described in {@link #encode(File, File)}.
+     * <p>
+     * If compression is enabled, the input is compressed in parallel on the same executor before it is split into work units. If a
+     * {@link Shard} is set, only the shard's range of work units is encoded. If {@link EncodeOptions#index()} is enabled and output
+     * is written to a file, a {@link MorseIndex} of the output is written next to it. See {@link IndexService}.
+     *
+     * @param input            The stream to encode as Morse code. It is not closed by this method.
+     * @param inputSize        The number of bytes in the stream, or -1 if the size is not known.
+     * @param output           The file to write the Morse code output to. If null, then encoded data will be printed to the console.
+     * @param executor         The executor to run the work units on. It is not shut down by this method.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     * @param checkpoints      Saves checkpoints as work units are written, and holds the checkpoint to resume from. Null if
+     *                         checkpoints are not enabled.
+     */
+    private void encode(InputStream input, long inputSize, File output, ExecutorService executor, boolean printingProgress,
+                        CheckpointService checkpoints) throws IOException {
+        InputStream payload;
+        long payloadSize;
+        int payloadOffset = 0;
+        if (this.options.compress()) {
+            payload = new ParallelDeflaterInputStream(input, executor, this.threadPoolSize);
+            payloadSize = -1; // Not known until the input has been compressed.
+        } else {
+            // An input that happens to start like a payload header is escaped, so that it is not mistaken for one when decoded.
+            final byte[] head = input.readNBytes(PayloadHeader.LENGTH);
+            final boolean escaped = PayloadHeader.startsWithMagic(head, head.length);
+            final byte[] prefix = escaped ? concat(PayloadHeader.create(PayloadHeader.STORED), head) : head;
+            payload = new PrefixedInputStream(prefix, input);
+            payloadOffset = prefix.length - head.length;
+            payloadSize = inputSize < 0 ? -1 : inputSize + payloadOffset;
+        }
+
+        final Shard shard = this.options.shard();
+        if (shard != null) {
+            if (payloadSize < 0) {
+                throw new IllegalStateException("Sharded encodes require an uncompressed input of known size");
+            }
+            // Shards are aligned to work units of the payload, so that the shard outputs can be merged.
+            final long totalWorkUnits = (long) Math.ceil((double) payloadSize / this.workUnitSize);
+            final long shardStart = shard.getFirstWorkUnit(totalWorkUnits) * this.workUnitSize;
+            final long shardEnd = Math.min(shard.getEndWorkUnit(totalWorkUnits) * this.workUnitSize, payloadSize);
+            payload.skipNBytes(shardStart);
+            payload = new BoundedInputStream(payload, shardEnd - shardStart);
+            payloadSize = shardEnd - shardStart;
+        }
+
+        IndexService index = null;
+        if (this.options.index() && output != null) {
+            if (this.options.compress() || shard != null) {
+                throw new IllegalStateException("Indexed encodes require an uncompressed, unsharded input");
+            }
+            index = new IndexService(output, this.workUnitSize, payloadOffset, checkpoints == null ? null : checkpoints.getStart());
+        }
+
+        this.encodePayload(payload, payloadSize, output, executor, printingProgress, checkpoints, index);
+    }
+
+    /**
+     * Encodes the given payload into Morse code using the supplied executor for the work units.
+     *
+     * @param is               The payload to encode as Morse code. It is not closed by this method.
+     * @param inputSize        The number of bytes in the payload, or -1 if the size is not known. Payloads of unknown size are
+     *                         encoded as {@link OperationSize#LARGE} operations.
+     * @param output           The file to write the Morse code output to. If null, then encoded data will be printed to the console.
+     * @param executor         The executor to run the work units on. It is not shut down by this method.
+     * @param printingProgress True if progress percentage should be printed to the console.
+     * @param checkpoints      Saves checkpoints as work units are written, and holds the checkpoint to resume from. Null if
+     *                         checkpoints are not enabled.
+     * @param index            Builds the index of the output as work units are written. Null if the index is not enabled.
+     */
+    private void encodePayload(InputStream is, long inputSize, File output, ExecutorService executor, boolean printingProgress,
+                               CheckpointService checkpoints, IndexService index) throws IOException {
+        final long totalWorkUnits = inputSize < 0 ? -1 : (long) Math.ceil((double) inputSize / this.workUnitSize);
+        final OperationSize operationSize = inputSize < 0 ? OperationSize.LARGE : OperationSize.getOperationSize(totalWorkUnits);
 
         final CompletionService<IndexedResult<String>> completionService = new ExecutorCompletionService<>(executor);
 
+        // Skip the work units that were written before the encode was interrupted, and truncate the output to the end of them.
+        final Checkpoint start = checkpoints == null ? null : checkpoints.getStart();
+        final int startIndex = start == null ? 0 : start.workUnitsWritten();
+        if (startIndex > 0) {
+            is.skipNBytes((long) startIndex * this.workUnitSize);
+        }
+
         try (
-                InputStream is = input.toURI().toURL().openStream();
-                BufferedWriter writer = OutputUtility.createWriter(output)
+                BufferedWriter writer = startIndex > 0
+                    ? OutputUtility.createWriter(output, start.outputBytes())
+                    : OutputUtility.createWriter(output);
+                PrintService progress = new PrintService(totalWorkUnits, "Work Units", printingProgress)
         ) {
 
-            int readIndex = 0;
-            int writeIndex = 0;
+            int readIndex = startIndex;
+            int writeIndex = startIndex;
+            long payloadBytesRead = (long) startIndex * this.workUnitSize;
+            progress.setProgress(startIndex);
             int readLength;
             byte[] readBuffer = new byte[this.workUnitSize];
-            final Map<Integer, String> writeBuffer = new HashMap<>(); // Holds completed work units until they can be written (removed when written).
+            // Holds completed work units until they can be written (removed when written).
+            final Map<Integer, IndexedResult<String>> writeBuffer = new HashMap<>();
 
             // Submit a task for each "workUnitSize" bytes read-in from the file.
-            while ((readLength = is.read(readBuffer, 0, this.workUnitSize)) > 0) {
+            long readStart = System.nanoTime();
+            while ((readLength = is.readNBytes(readBuffer, 0, this.workUnitSize)) > 0) { // Full work units, even from pipes.
+                METRICS.recordRead(readLength, System.nanoTime() - readStart);
+                payloadBytesRead += readLength;
 
                 WorkUnit workUnit = new WorkUnit(readBuffer, readLength, readIndex++);
 
+                final long submitTime = System.nanoTime();
                 completionService.submit(() -> { // Submit the work unit.
+                    METRICS.getQueueWait().record(System.nanoTime() - submitTime);
                     String encodedWorkUnit = encodeWorkUnit(workUnit, operationSize);
                     return new IndexedResult<>(workUnit.getIndex(), encodedWorkUnit);
                 });
@@ -225,19 +653,29 @@ public class EncodeService {
                 Future<IndexedResult<String>> future = completionService.poll();
                 if (future != null) {
                     IndexedResult<String> completedWorkUnit = future.get();
-                    writeBuffer.put(completedWorkUnit.index(), completedWorkUnit.value());
+                    writeBuffer.put(completedWorkUnit.index(), completedWorkUnit);
+                    METRICS.recordReorderBufferDepth(writeBuffer.size());
 
                     // Write any available contiguous work units.
-                    writeIndex = writeCompletedWorkUnits(writeBuffer, writeIndex, writer, totalWorkUnits, printingProgress);
+                    writeIndex = writeCompletedWorkUnits(writeBuffer, writeIndex, writer, progress, checkpoints, index);
                 }
+                readStart = System.nanoTime();
             }
 
             // Now loop until all remaining work units complete and have been written.
             while (writeIndex < readIndex) {
                 IndexedResult<String> completedWorkUnit = completionService.take().get();
-                writeBuffer.put(completedWorkUnit.index(), completedWorkUnit.value());
+                writeBuffer.put(completedWorkUnit.index(), completedWorkUnit);
+                METRICS.recordReorderBufferDepth(writeBuffer.size());
+
+                writeIndex = writeCompletedWorkUnits(writeBuffer, writeIndex, writer, progress, checkpoints, index);
+            }
 
-                writeIndex = writeCompletedWorkUnits(writeBuffer, writeIndex, writer, totalWorkUnits, printingProgress);
+            if (index != null) {
+                index.complete(payloadBytesRead);
+            }
+            if (checkpoints != null) {
+                checkpoints.complete(payloadBytesRead % this.workUnitSize == 0);
             }
 
         } catch (InterruptedException e) {
@@ -245,91 +683,427 @@ public class EncodeService {
             throw new RuntimeException(e);
         } catch (ExecutionException e) {
             throw new RuntimeException(e.getCause());
-        } finally {
-            executor.shutdown();
         }
     }
 
+    /**
+     * Creates the encoder's thread pool, which has {@link #threadPoolSize} threads and a bounded task queue. When the queue is
+     * full, the submitting thread runs the task itself, which provides backpressure to the reading thread. Threads are only
+     * started as work units are submitted, so a small input does not start the whole pool, and they are daemon threads, so an
+     * encoder that is never closed does not keep the JVM running.
+     *
+     * @return The executor.
+     */
+    private ThreadPoolExecutor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            this.threadPoolSize, this.threadPoolSize,
+            IDLE_THREAD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(this.queueCapacity),
+            runnable -> {
+                final Thread thread = new Thread(runnable, "mornary-encode-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Retrieves the encoder's thread pool. Batch operations run their tasks on it, so that a batch does not need a thread pool of
+     * its own.
+     *
+     * @return The executor. It must not be shut down, except by {@link #close()}.
+     * @throws IllegalStateException If the encoder has been closed.
+     */
+    ExecutorService getExecutor() {
+        if (this.executor.isShutdown()) {
+            // A closed pool would silently discard the work units that are rejected by the caller-runs policy.
+            throw new IllegalStateException("Encoder has been closed");
+        }
+        return this.executor;
+    }
+
+    /**
+     * Shuts down the encoder's thread pool once any encodes in progress have completed. The encoder cannot be used afterwards.
+     * The dictionaries stay loaded for other encoders that share them.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
     /**
      * Encodes a single work unit into Morse code.
      *
      * @param workUnit      A single work unit to be encoded into Morse.
-     * @param operationSize The size of the overarching operation. Determines the algorithm used to encode the work unit.
+     * @param operationSize The size of the overarching operation. Recorded in the work unit's metrics event.
      * @return The encoded work unit.
      */
-    private String encodeWorkUnit(WorkUnit workUnit, OperationSize operationSize) {
+    String encodeWorkUnit(WorkUnit workUnit, OperationSize operationSize) {
+        final WorkUnitEncodedEvent event = new WorkUnitEncodedEvent();
+        event.begin();
+        final long start = System.nanoTime();
+
+        final CandidateCache candidateCache = this.dictionary.getCandidateCache();
+        final long cacheHits = candidateCache.getHits();
+        final long cacheMisses = candidateCache.getMisses();
+
+        final int period = workUnit.findPeriod(MAX_PERIOD);
+        final int blockSize = period == 0 ? 0 : period * Math.ceilDiv(MIN_BLOCK_SIZE, period);
+        final EncodedText encodedText = period > 0 && workUnit.getData().length >= 2 * blockSize
+            ? this.encodePeriodicWorkUnit(workUnit, blockSize)
+            : this.encodeText(workUnit, candidateCache);
+
+        METRICS.recordEncode(encodedText.segments(), encodedText.fallbackLetters(), System.nanoTime() - start);
+        METRICS.recordCandidateCache(candidateCache.getHits() - cacheHits, candidateCache.getMisses() - cacheMisses);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = workUnit.getIndex();
+            event.size = workUnit.getBitReader().totalBits() / 8;
+            event.operationSize = operationSize.name();
+            event.segments = encodedText.segments();
+            event.fallbackLetters = encodedText.fallbackLetters();
+            event.commit();
+        }
+
+        return encodedText.morse();
+    }
+
+    /**
+     * Encodes a work unit whose data repeats a short pattern, e.g. a zero-filled region of a disk image.
+     * <p>
+     * The data is split into blocks of whole repetitions of the pattern. Every block is the same, so each is encoded with one of
+     * a set of precomputed encodings of the block, picked at random so that the output does not repeat itself. Any data left over
+     * after the last whole block is encoded normally, as is the whole work unit if its pattern's encodings are not kept (see
+     * {@link #MAX_BLOCK_PATTERNS}).
+     * <p>
+     * The blocks are not counted in the dictionary's {@link EntryStatistics}: their text segments were chosen once, when the
+     * block's encodings were computed, and counting them for every block would let one run of repeating data outweigh the rest
+     * of a profile. The leftover data, and work units whose encodings are not kept, are counted as usual.
+     * <p>
+     * Helper method for {@link #encodeWorkUnit(WorkUnit, OperationSize)}.
+     *
+     * @param workUnit  The work unit. Its data must repeat a pattern that fits a whole number of times into blockSize.
+     * @param blockSize The size of a block, in bytes.
+     * @return The encoded work unit.
+     */
+    private EncodedText encodePeriodicWorkUnit(WorkUnit workUnit, int blockSize) {
+        final byte[] data = workUnit.getData();
+        final EncodedText[] blockEncodings = this.getBlockEncodings(Arrays.copyOf(data, blockSize));
+        if (blockEncodings == null) {
+            return this.encodeText(workUnit, this.dictionary.getCandidateCache());
+        }
+
+        final StringJoiner morseTextSegments = new StringJoiner(MORSE_CODE_WORD_DELIMITER);
+
+        int segments = 0;
+        int fallbackLetters = 0;
+
+        final int blocks = data.length / blockSize;
+        int previous = -1;
+        for (int i = 0; i < blocks; i++) {
+            // Never use the same encoding for two blocks in a row.
+            final int next = previous < 0
+                ? ThreadLocalRandom.current().nextInt(blockEncodings.length)
+                : (previous + 1 + ThreadLocalRandom.current().nextInt(blockEncodings.length - 1)) % blockEncodings.length;
+            morseTextSegments.add(blockEncodings[next].morse());
+            segments += blockEncodings[next].segments();
+            fallbackLetters += blockEncodings[next].fallbackLetters();
+            previous = next;
+        }
+
+        final int remainder = data.length - blocks * blockSize;
+        if (remainder > 0) {
+            final WorkUnit rest = new WorkUnit(Arrays.copyOfRange(data, blocks * blockSize, data.length), remainder, workUnit.getIndex());
+            final EncodedText encodedRest = this.encodeText(rest, this.dictionary.getCandidateCache());
+            morseTextSegments.add(encodedRest.morse());
+            segments += encodedRest.segments();
+            fallbackLetters += encodedRest.fallbackLetters();
+        }
+
+        return new EncodedText(morseTextSegments.toString(), segments, fallbackLetters);
+    }
+
+    /**
+     * Retrieves the precomputed encodings of a block of repeating data, computing them if needed. The encodings of up to
+     * {@link #MAX_BLOCK_PATTERNS} blocks are kept for the lifetime of the service.
+     * <p>
+     * Each encoding starts with a different text segment from the encodings before it, until no other text segment matches the
+     * start of the block, so the encodings differ even where the encoder would otherwise pick the same text segments every time.
+     *
+     * @param block The block.
+     * @return {@link #BLOCK_ENCODINGS} encodings of the block, or null if the block's encodings are not kept and there is no
+     * room to keep them.
+     */
+    EncodedText[] getBlockEncodings(byte[] block) {
+        final ByteBuffer blockKey = ByteBuffer.wrap(block.clone());
+
+        EncodedText[] blockEncodings = this.blockEncodings.get(blockKey);
+        if (blockEncodings == null) {
+            if (this.blockEncodings.size() >= MAX_BLOCK_PATTERNS) {
+                return null;
+            }
+            final BitSet usedFirstSegments = new BitSet();
+            blockEncodings = new EncodedText[BLOCK_ENCODINGS];
+            for (int i = 0; i < blockEncodings.length; i++) {
+                blockEncodings[i] = this.encodeText(new WorkUnit(block, block.length, 0), this.dictionary.getCandidateCache(),
+                    usedFirstSegments, null);
+            }
+            final EncodedText[] existing = this.blockEncodings.putIfAbsent(blockKey, blockEncodings);
+            if (existing != null) { // Another thread computed them first.
+                blockEncodings = existing;
+            }
+        }
+        return blockEncodings;
+    }
+
+    /**
+     * Encodes the data of a work unit into Morse code, one text segment at a time.
+     *
+     * @param workUnit       The work unit.
+     * @param candidateCache The current thread's cache of trie search results.
+     * @return The encoded data.
+     */
+    private EncodedText encodeText(WorkUnit workUnit, CandidateCache candidateCache) {
+        return this.encodeText(workUnit, candidateCache, null, this.dictionary.getEntryStatistics());
+    }
+
+    /**
+     * Encodes the data of a work unit into Morse code, one text segment at a time, starting with a text segment that has not
+     * been used to start an encoding before.
+     *
+     * @param workUnit          The work unit.
+     * @param candidateCache    The current thread's cache of trie search results.
+     * @param usedFirstSegments The ids of the text segments that previous encodings started with. The id of the text segment
+     *                          this encoding starts with is added. If every text segment that matches the start of the data has
+     *                          been used, they are all cleared and may be used again. Null to start with any text segment.
+     * @param statistics        Records the candidates and the chosen text segments, or null if they are not recorded.
+     * @return The encoded data.
+     */
+    private EncodedText encodeText(WorkUnit workUnit, CandidateCache candidateCache, BitSet usedFirstSegments,
+                                   EntryStatistics statistics) {
         StringJoiner morseTextSegments = new StringJoiner(MORSE_CODE_WORD_DELIMITER);
 
         BitReader bitReader = workUnit.getBitReader();
 
-        // Track the last 3 selected text segments for scoring purposes.
-        CircularFifoQueue<String> previousTextSegments = new CircularFifoQueue<>(3);
+        int segments = 0;
+        int fallbackLetters = 0;
+
+        // Track the ids of the last 3 selected text segments for scoring purposes. Single letters are tracked as -1.
+        CircularFifoQueue<Integer> previousTextSegments = new CircularFifoQueue<>(3);
         while (bitReader.hasRemaining()) {
-            TextSegment text = findText(workUnit, previousTextSegments, operationSize);
-            morseTextSegments.add(text.getMorse());
-            bitReader.advance(text.getBitLength());
-            previousTextSegments.add(text.getEnglish());
+            int segmentId;
+            if (segments == 0 && usedFirstSegments != null) {
+                segmentId = findText(workUnit, previousTextSegments, candidateCache, usedFirstSegments, statistics);
+                if (segmentId < 0 && !usedFirstSegments.isEmpty()) {
+                    usedFirstSegments.clear();
+                    segmentId = findText(workUnit, previousTextSegments, candidateCache, usedFirstSegments, statistics);
+                }
+                if (segmentId >= 0) {
+                    usedFirstSegments.set(segmentId);
+                }
+            } else {
+                segmentId = findText(workUnit, previousTextSegments, candidateCache, null, statistics);
+            }
+            if (segmentId >= 0) {
+                if (statistics != null) {
+                    statistics.recordWin(segmentId);
+                }
+                morseTextSegments.add(MorseUtility.toMorseCode(this.segmentStore.getEnglish(segmentId), this.dictionary.getAlphabets()));
+                bitReader.advance(this.segmentStore.getBitLength(segmentId));
+            } else { // Find a matching letter if there were no matching text segments.
+                final TextSegment letter = findLetter(workUnit);
+                morseTextSegments.add(letter.getMorse());
+                bitReader.advance(letter.getBitLength());
+                fallbackLetters++;
+            }
+            previousTextSegments.add(segmentId);
+            segments++;
         }
-        return morseTextSegments.toString();
+
+        return new EncodedText(morseTextSegments.toString(), segments, fallbackLetters);
     }
 
     /**
      * Finds a text segment that matches the start of (or the entire) bit pattern at the current index in the work unit.
-     * In the event that multiple matches are found, the one with the highest score will be returned.
+     * In the event that multiple matches are found, the one with the highest score will be returned. Ties are broken randomly.
      * <p>
      * For example, if the input started with <code>011</code>, the morse pattern would be <code>.--</code>.
      * And that could match the word "at" (which is <code>.- -</code> in Morse).
      * <p>
-     * Helper method for {@link #encodeWorkUnit(WorkUnit, OperationSize)}.
+     * The trie is searched along the input's path, branch-and-bound: each node knows the highest static score of any text segment
+     * at or below it (see {@link RadixMorseTrieNode#getMaxScore(Optimization)}), and since the penalty for repetition only lowers
+     * scores, the search stops descending as soon as the next node cannot beat or tie the best score found so far. The part of
+     * the search that depends only on the next {@link CandidateCache#KEY_BITS} bits of input is cached, with its matches sorted
+     * by static score (see {@link #getStaticScore(int)}), so that repeated bit patterns skip the trie and only the best few
+     * matches are scored.
+     * <p>
+     * Helper method for {@link #encodeText(WorkUnit, CandidateCache, BitSet, EntryStatistics)}.
      *
      * @param workUnit             Work unit containing the input data and a bit reader.
-     * @param previousTextSegments The N previously selected text segments in English. This should not be an exhaustive list.
+     * @param previousTextSegments The ids of the N previously selected text segments. This should not be an exhaustive list.
      *                             Used in determining a text segment's score.
-     * @param operationSize        The size of the overarching operation.
-     * @return A text segment that matches the start of the input.
+     * @param candidateCache       The current thread's cache of trie search results.
+     * @param excludedSegments     The ids of text segments that must not be returned, or null if any may be.
+     * @param statistics           Records every text segment that is considered as a candidate, or null if they are not
+     *                             recorded. Text segments skipped by the branch-and-bound are not considered, whether the search
+     *                             is cached or not.
+     * @return The id of a text segment that matches the start of the input, or -1 if there are no matching text segments.
      */
-    private TextSegment findText(WorkUnit workUnit, CircularFifoQueue<String> previousTextSegments, OperationSize operationSize) {
+    private int findText(WorkUnit workUnit, CircularFifoQueue<Integer> previousTextSegments, CandidateCache candidateCache,
+                         BitSet excludedSegments, EntryStatistics statistics) {
+        final BitReader bitReader = workUnit.getBitReader();
+        final int maxDepth = bitReader.remainingBits();
 
-        final Set<Match> matchingTextSegments = searchTrie(workUnit, previousTextSegments, operationSize);
+        int bestSegmentId = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int ties = 0;
 
-        return matchingTextSegments.stream()
-            .max(Comparator.comparingDouble(Match::score)
-                .thenComparing(x -> ThreadLocalRandom.current().nextInt())
-            )
-            .orElse(findLetter(workUnit)) // Find a matching letter if there were no matching text segments.
-            .entry();
+        RadixMorseTrieNode node = this.morseTrie.getRoot();
+        int depth = 0;
+        boolean searched = false; // True if the text segments of the current node have already been scored.
+
+        // Near the end of the work unit the search is cut short by the end of the input, so it is not cached.
+        if (maxDepth > CandidateCache.KEY_BITS) {
+            final int key = CandidateCache.key(bitReader.peekBits(0, CandidateCache.KEY_BITS), this.options.optimization());
+            CandidateCache.Entry entry = candidateCache.get(key);
+            if (entry == null) {
+                entry = this.searchKey(key);
+                candidateCache.put(entry);
+            }
+
+            for (int segmentId : entry.segmentIds()) {
+                if (statistics != null) {
+                    statistics.recordCandidate(segmentId);
+                }
+                // The penalty for repetition only lowers scores, so once the static score falls below the best score, none of
+                // the remaining text segments can beat or tie it.
+                if (this.getStaticScore(segmentId) < bestScore) {
+                    break;
+                }
+                if (excludedSegments != null && excludedSegments.get(segmentId)) {
+                    continue;
+                }
+                final double score = this.scoreTextSegment(segmentId, previousTextSegments);
+                if (score > bestScore) {
+                    bestSegmentId = segmentId;
+                    bestScore = score;
+                    ties = 1;
+                } else if (score == bestScore && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                    bestSegmentId = segmentId; // Each of the tied text segments is equally likely to be kept.
+                }
+            }
+
+            if (entry.node() == null) {
+                return bestSegmentId;
+            }
+            node = entry.node();
+            depth = entry.depth();
+            searched = true;
+        }
+
+        while (depth < maxDepth) {
+            if (!searched) {
+                final int end = node.getFirstSegmentId() + node.getSegmentCount();
+                for (int segmentId = node.getFirstSegmentId(); segmentId < end; segmentId++) {
+                    if (statistics != null) {
+                        statistics.recordCandidate(segmentId);
+                    }
+                    if (excludedSegments != null && excludedSegments.get(segmentId)) {
+                        continue;
+                    }
+                    final double score = this.scoreTextSegment(segmentId, previousTextSegments);
+                    if (score > bestScore) {
+                        bestSegmentId = segmentId;
+                        bestScore = score;
+                        ties = 1;
+                    } else if (score == bestScore && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                        bestSegmentId = segmentId; // Each of the tied text segments is equally likely to be kept.
+                    }
+                }
+            }
+            searched = false;
+
+            // Follow the edge that starts with the next bit, if its whole label matches the input and a text segment at or below
+            // its end could still beat or tie the best one.
+            final int bit = bitReader.getBit(depth);
+            final int labelLength = node.getLabelLength(bit);
+            final RadixMorseTrieNode child = node.getChild(bit);
+            if (child == null || child.getMaxScore(this.options.optimization()) < bestScore || depth + labelLength >= maxDepth
+                || bitReader.peekBits(depth, labelLength) != node.getLabel(bit)) {
+                break;
+            }
+            node = child;
+            depth += labelLength;
+        }
+        return bestSegmentId;
     }
 
     /**
-     * Searches the trie for text segments that match the start of (or the entire) bit pattern at the current index in the work unit.
-     * <p>
-     * Helper method for {@link #findText(WorkUnit, CircularFifoQueue, OperationSize)}.
+     * Searches the trie along the path of a {@link CandidateCache} key, as {@link #findText} would for an input that starts with
+     * the key's bits and continues past them.
      *
-     * @param workUnit             Work unit containing the input data and a bit reader.
-     * @param previousTextSegments The N previously selected text segments. This should not be an exhaustive list.
-     *                             Used in determining a text segment's score.
-     * @param operationSize        The size of the over arching operation.
-     * @return The set of matches.
+     * @param key The key. See {@link CandidateCache#key(long, Optimization)}.
+     * @return The cache entry for the key.
      */
-    private Set<Match> searchTrie(WorkUnit workUnit, CircularFifoQueue<String> previousTextSegments, OperationSize operationSize) {
-        final Set<Match> matchingTextSegments = new HashSet<>();
+    private CandidateCache.Entry searchKey(int key) {
+        final int keyBits = CandidateCache.KEY_BITS;
+        final long bits = key & ((1L << keyBits) - 1);
+
+        int[] segmentIds = new int[16];
+        int matches = 0;
 
-        MorseTrieNode node = this.morseTrie.getRoot();
-        int maxDepth = workUnit.getBitReader().remainingBits();
-        for (int i = 0; i < maxDepth; i++) {
-            // Break early if we reach a leaf or the requisite number of matches has been found.
-            if (node == null || matchingTextSegments.size() >= operationSize.matchTarget) {
+        RadixMorseTrieNode node = this.morseTrie.getRoot();
+        int depth = 0;
+        while (true) {
+            final int end = node.getFirstSegmentId() + node.getSegmentCount();
+            for (int segmentId = node.getFirstSegmentId(); segmentId < end; segmentId++) {
+                if (matches == segmentIds.length) {
+                    segmentIds = Arrays.copyOf(segmentIds, matches * 2);
+                }
+                segmentIds[matches++] = segmentId;
+            }
+
+            if (depth == keyBits) { // The search continues past the key.
+                break;
+            }
+
+            final int bit = (int) (bits >>> (keyBits - 1 - depth)) & 1;
+            final int labelLength = node.getLabelLength(bit);
+            final RadixMorseTrieNode child = node.getChild(bit);
+            if (child == null) {
+                node = null;
                 break;
             }
-            for (TextSegment textSegment : node.getTextSegments()) {
-                final double score = scoreTextSegment(textSegment, previousTextSegments);
-                matchingTextSegments.add(new Match(textSegment, score));
+            if (depth + labelLength > keyBits) { // The edge continues past the key.
+                break;
             }
+            final long label = (bits >>> (keyBits - depth - labelLength)) & ((1L << labelLength) - 1);
+            if (label != node.getLabel(bit)) {
+                node = null;
+                break;
+            }
+            node = child;
+            depth += labelLength;
+        }
 
-            int bit = workUnit.getBitReader().getBit(i);
-            node = (bit == 0) ? node.dot : node.dash;
+        // Sort by static score, highest first. The lists are short, so an insertion sort is fastest.
+        segmentIds = Arrays.copyOf(segmentIds, matches);
+        for (int i = 1; i < segmentIds.length; i++) {
+            final int segmentId = segmentIds[i];
+            final double score = this.getStaticScore(segmentId);
+            int j = i - 1;
+            while (j >= 0 && this.getStaticScore(segmentIds[j]) < score) {
+                segmentIds[j + 1] = segmentIds[j];
+                j--;
+            }
+            segmentIds[j + 1] = segmentId;
         }
-        return matchingTextSegments;
+
+        return new CandidateCache.Entry(key, segmentIds, node, depth);
     }
 
     /**
@@ -340,7 +1114,7 @@ public class EncodeService {
      * @param workUnit Work unit containing the input data and a bit reader.
      * @return A randomly selected letter that matches the start of the input.
      */
-    private Match findLetter(WorkUnit workUnit) {
+    private TextSegment findLetter(WorkUnit workUnit) {
         EncodingNode node = null;
         int maxLength = Math.min(workUnit.getBitReader().remainingBits(), this.singleCharacterTree.getMaxDepth());
 
@@ -348,7 +1122,7 @@ public class EncodeService {
         while (node == null || node.getEncoding() == null) {
 
             // Randomly select a character length for a morse encoded character.
-            int length = Math.min(maxLength, 1 + (int) (Math.random() * this.singleCharacterTree.getMaxDepth()));
+            int length = Math.min(maxLength, 1 + ThreadLocalRandom.current().nextInt(this.singleCharacterTree.getMaxDepth()));
 
             StringBuilder morseBuilder = new StringBuilder(length);
 
@@ -362,30 +1136,39 @@ public class EncodeService {
             node = this.singleCharacterTree.get(morsePrefix);
         }
         String morse = node.getEncoding().getCode();
-        TextSegment entry = new TextSegment("", morse, 1.0);
+        return new TextSegment("", morse, 1.0);
+    }
 
-        return new Match(entry, 0);
+    /**
+     * Retrieves the static score of a text segment, i.e. its score before any penalty for repetition is applied, for the
+     * encoder's {@link Optimization}.
+     *
+     * @param segmentId The id of the text segment.
+     * @return The static score.
+     */
+    private double getStaticScore(int segmentId) {
+        return this.options.optimization() == Optimization.SIZE
+            ? this.segmentStore.getSizeScore(segmentId)
+            : this.segmentStore.getScore(segmentId);
     }
 
     /**
      * Score a given text segment so that it can be compared to other matching text segments.
      *
-     * @param textSegment          The text segment to score.
-     * @param previousTextSegments The N previously selected text segments. This should not be an exhaustive list.
+     * @param segmentId            The id of the text segment to score.
+     * @param previousTextSegments The ids of the N previously selected text segments. This should not be an exhaustive list.
      *                             If text segment appears in the previousTextSegments, it will have a negative impact on the score.
      * @return The text segment's score.
      */
-    private static double scoreTextSegment(TextSegment textSegment, CircularFifoQueue<String> previousTextSegments) {
+    private double scoreTextSegment(int segmentId, CircularFifoQueue<Integer> previousTextSegments) {
         // Some file formats produce long sections of repeating bit patterns, this can result in the exact same word being
         // selected many times in a row. To reduce the likelihood of repeated words, we apply a penalty on word repeats.
         double previousTextMultiplier = 1.0;
         for (int i = 0; i < previousTextSegments.size(); i++) {
-            previousTextMultiplier -= textSegment.getEnglish().equals(previousTextSegments.get(i)) ? 0.2 : 0.0;
+            previousTextMultiplier -= previousTextSegments.get(i) == segmentId ? 0.2 : 0.0;
         }
 
-        double acronymMultiplier = textSegment.getEnglish().toLowerCase().matches(".*[aeiou].*") ? 1.0 : 0.5;
-
-        return textSegment.getNumberOfLetters() * previousTextMultiplier * textSegment.getScoreMultiplier() * acronymMultiplier;
+        return this.getStaticScore(segmentId) * previousTextMultiplier;
     }
 
     /**
@@ -396,22 +1179,208 @@ public class EncodeService {
      * @param writeBuffer      Buffer containing completed work units.
      * @param writeIndex       The current write index.
      * @param writer           The writer to use.
-     * @param totalWorkUnits   Total number of work units in the operation.
-     * @param printingProgress True if progress percentage should be printed to the console.
+     * @param progress         Tracks the number of work units written.
+     * @param checkpoints      Saves checkpoints as work units are written. Null if checkpoints are not enabled.
+     * @param index            Builds the index of the output as work units are written. Null if the index is not enabled.
      * @return The new write index.
      */
-    private int writeCompletedWorkUnits(Map<Integer, String> writeBuffer, int writeIndex,
-                                        BufferedWriter writer, long totalWorkUnits, boolean printingProgress) throws IOException {
+    private int writeCompletedWorkUnits(Map<Integer, IndexedResult<String>> writeBuffer, int writeIndex,
+                                        BufferedWriter writer, PrintService progress, CheckpointService checkpoints,
+                                        IndexService index)
+        throws IOException {
+        if (!writeBuffer.containsKey(writeIndex)) {
+            return writeIndex;
+        }
+
+        final WriteFlushEvent event = new WriteFlushEvent();
+        event.begin();
+        final int firstIndex = writeIndex;
+        long charactersWritten = 0;
+
         while (writeBuffer.containsKey(writeIndex)) {
-            writer.write(writeBuffer.remove(writeIndex++));
-            if (writeIndex < totalWorkUnits) { // Avoid extra delimiter after final work unit.
+            final long writeStart = System.nanoTime();
+            this.recordReorderWait(writeBuffer.get(writeIndex), writeStart, writeBuffer.size());
+
+            String encodedWorkUnit = writeBuffer.remove(writeIndex).value();
+            int length = encodedWorkUnit.length();
+            if (writeIndex > 0) { // Delimit from the previous work unit. The number of work units may not be known in advance.
                 writer.write(MORSE_CODE_WORD_DELIMITER);
+                length += MORSE_CODE_WORD_DELIMITER.length();
+            }
+            writer.write(encodedWorkUnit);
+            writeIndex++;
+            charactersWritten += length;
+            // The output is ASCII, so characters and bytes are the same.
+            METRICS.recordWrite(length, System.nanoTime() - writeStart);
+            progress.setProgress(writeIndex);
+            if (index != null) {
+                index.workUnitWritten(writeIndex, length);
             }
-            if (printingProgress) {
-                this.printService.printProgress(writeIndex, totalWorkUnits);
+            if (checkpoints != null) {
+                checkpoints.workUnitWritten(writeIndex, length, writer);
             }
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.firstIndex = firstIndex;
+            event.workUnits = writeIndex - firstIndex;
+            event.size = charactersWritten;
+            event.commit();
+        }
         return writeIndex;
     }
 
+    /**
+     * Records how long a completed work unit waited in the write buffer before it could be written.
+     *
+     * @param completedWorkUnit The completed work unit that is about to be written.
+     * @param now               The current {@link System#nanoTime()}.
+     * @param bufferDepth       The number of completed work units in the write buffer.
+     */
+    private void recordReorderWait(IndexedResult<String> completedWorkUnit, long now, int bufferDepth) {
+        final long wait = now - completedWorkUnit.completionTime();
+        METRICS.getReorderWait().record(wait);
+
+        final ReorderWaitEvent event = new ReorderWaitEvent();
+        if (event.shouldCommit()) {
+            event.index = completedWorkUnit.index();
+            event.wait = wait;
+            event.bufferDepth = bufferDepth;
+            event.commit();
+        }
+    }
+
+    /**
+     * The Morse code of some encoded data.
+     *
+     * @param morse           The Morse code.
+     * @param segments        The number of text segments in the Morse code.
+     * @param fallbackLetters How many of those text segments are single letters picked because no dictionary entry matched.
+     */
+    record EncodedText(String morse, int segments, int fallbackLetters) {
+    }
+
+    /**
+     * An input stream that ends after a given number of bytes of the stream it wraps. Closing it does not close the wrapped stream.
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        /**
+         * Constructs a new Bounded Input Stream.
+         *
+         * @param in     The stream to read from.
+         * @param length The number of bytes to read before ending.
+         */
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            final int read = in.read(b, off, (int) Math.min(len, this.remaining));
+            if (read > 0) {
+                this.remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = in.skip(Math.min(n, this.remaining));
+            this.remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), this.remaining);
+        }
+
+        @Override
+        public void close() {
+            // The wrapped stream is closed by its owner.
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * An input stream that reads a prefix, then the stream it wraps. Unlike a {@link java.io.SequenceInputStream}, it passes skips
+     * on to the wrapped stream, so that a file can be skipped by seeking rather than by reading it (e.g. when resuming an encode).
+     * Closing it does not close the wrapped stream.
+     */
+    private static class PrefixedInputStream extends FilterInputStream {
+
+        private final byte[] prefix;
+        private int position = 0;
+
+        /**
+         * Constructs a new Prefixed Input Stream.
+         *
+         * @param prefix The bytes to read before the wrapped stream.
+         * @param in     The stream to read after the prefix.
+         */
+        PrefixedInputStream(byte[] prefix, InputStream in) {
+            super(in);
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.position < this.prefix.length) {
+                final int read = Math.min(len, this.prefix.length - this.position);
+                System.arraycopy(this.prefix, this.position, b, off, read);
+                this.position += read;
+                return read;
+            }
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (this.position < this.prefix.length) {
+                final int skipped = (int) Math.min(Math.max(n, 0), this.prefix.length - this.position);
+                this.position += skipped;
+                return skipped;
+            }
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.position < this.prefix.length ? this.prefix.length - this.position : in.available();
+        }
+
+        @Override
+        public void close() {
+            // The wrapped stream is closed by its owner.
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
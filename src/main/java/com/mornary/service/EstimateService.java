@@ -0,0 +1,287 @@
+package com.mornary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mornary.model.EncodeEstimate;
+import com.mornary.model.EncodeEstimate.Range;
+import com.mornary.model.MemoryPlan;
+import com.mornary.model.MorseDictionary;
+import com.mornary.model.OperationSize;
+import com.mornary.model.Shard;
+import com.mornary.model.WeightedDictionary;
+import com.mornary.model.WorkUnit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Service for estimating what encoding a file will take (the size of the output, the wall time, and the peak heap) without
+ * encoding all of it, so that encodes can be scheduled and their disk provisioned in advance.
+ * <p>
+ * The file's work units are split into equal strata, and one work unit is picked at random from each. The sampled work units are
+ * encoded one at a time, with the encoder's settings and as the operation size of the whole file, and the output characters
+ * and encode time per byte of input are extrapolated to the whole file. The confidence intervals treat the sample as a simple
+ * random one, which overstates their width a little for a stratified sample, but not by enough to matter.
+ *
+ * @author John Mortimore
+ */
+public class EstimateService {
+
+    /**
+     * The number of work units sampled by default. The intervals narrow with the square root of the sample size, and 64 work units
+     * estimate the output size of typical inputs to within a few percent.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 64;
+
+    /**
+     * The most times the sample is encoded. The sample is encoded again as long as that is faster than the previous time, and the
+     * fastest time is kept, so that class loading and the JIT, which a long encode soon gets past, do not count towards the
+     * encode time.
+     */
+    static final int MAX_PASSES = 10;
+
+    /**
+     * How much faster a pass must be than the previous one for the JIT to still be warming up.
+     */
+    private static final double WARM_UP_SPEED_UP = 0.95;
+
+    /**
+     * The number of standard errors either side of an estimate that give a 95% confidence interval.
+     */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * The length of the delimiter that is written between work units; see {@link EncodeService}.
+     */
+    private static final int MORSE_CODE_WORD_DELIMITER_LENGTH = " / ".length();
+
+    /**
+     * Seeds the choice of work units, so that estimating the same file twice samples the same work units.
+     */
+    private static final long SAMPLE_SEED = 0;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final EncodeService encodeService;
+    private final int sampleSize;
+
+    /**
+     * Constructs a new Estimate Service that samples {@link #DEFAULT_SAMPLE_SIZE} work units.
+     *
+     * @param encodeService The encoder whose encodes are estimated. Its work unit size, threads, options, and dictionaries are
+     *                      the ones the estimate is for.
+     */
+    public EstimateService(EncodeService encodeService) {
+        this(encodeService, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * Constructs a new Estimate Service.
+     *
+     * @param encodeService The encoder whose encodes are estimated.
+     * @param sampleSize    The number of work units to sample. Inputs with no more work units than this are encoded in full.
+     */
+    public EstimateService(EncodeService encodeService, int sampleSize) {
+        this.encodeService = encodeService;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Estimates what encoding the given file will take. If the encoder has a {@link Shard}, the estimate is for the shard's part
+     * of the file.
+     *
+     * @param input The file to estimate the encode of.
+     * @return The estimate.
+     */
+    public EncodeEstimate estimate(File input) throws IOException {
+        final int workUnitSize = this.encodeService.getWorkUnitSize();
+
+        long start = 0;
+        long end = input.length();
+        final Shard shard = this.encodeService.getOptions().shard();
+        if (shard != null) {
+            final long totalWorkUnits = Math.ceilDiv(end, workUnitSize);
+            start = shard.getFirstWorkUnit(totalWorkUnits) * workUnitSize;
+            end = Math.min(shard.getEndWorkUnit(totalWorkUnits) * workUnitSize, end);
+        }
+        final long inputBytes = end - start;
+        final long workUnits = Math.ceilDiv(inputBytes, workUnitSize);
+        final OperationSize operationSize = OperationSize.getOperationSize(workUnits);
+        final int threads = this.encodeService.getThreadPoolSize();
+
+        final long[] sample = this.sampleWorkUnits(workUnits);
+        final byte[][] data = new byte[sample.length][];
+        try (RandomAccessFile file = new RandomAccessFile(input, "r")) {
+            for (int i = 0; i < sample.length; i++) {
+                final long offset = start + sample[i] * workUnitSize;
+                data[i] = new byte[(int) Math.min(workUnitSize, end - offset)];
+                file.seek(offset);
+                file.readFully(data[i]);
+            }
+        }
+
+        // Output characters per byte of input for each sampled work unit, from the last pass, and encode nanoseconds per byte of
+        // input, from the fastest pass.
+        final double[] outputPerByte = new double[sample.length];
+        final double[] nanosPerByte = new double[sample.length];
+        final double[] passNanosPerByte = new double[sample.length];
+        long sampledOutput = 0;
+        long fastestPassNanos = Long.MAX_VALUE;
+        long previousPassNanos = Long.MAX_VALUE;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            long passOutput = 0;
+            long passNanos = 0;
+            for (int i = 0; i < sample.length; i++) {
+                final WorkUnit workUnit = new WorkUnit(data[i], data[i].length, (int) sample[i]);
+                final long encodeStart = System.nanoTime();
+                final int output = this.encodeService.encodeWorkUnit(workUnit, operationSize).length();
+                final long encodeNanos = System.nanoTime() - encodeStart;
+                passNanosPerByte[i] = (double) encodeNanos / data[i].length;
+                outputPerByte[i] = (double) output / data[i].length;
+                passOutput += output;
+                passNanos += encodeNanos;
+            }
+            sampledOutput = passOutput;
+            if (passNanos < fastestPassNanos) {
+                System.arraycopy(passNanosPerByte, 0, nanosPerByte, 0, sample.length);
+                fastestPassNanos = passNanos;
+            }
+            if (passNanos > previousPassNanos * WARM_UP_SPEED_UP) {
+                break;
+            }
+            previousPassNanos = passNanos;
+        }
+
+        final long delimiters = Math.max(0, workUnits - 1) * MORSE_CODE_WORD_DELIMITER_LENGTH;
+        final Range outputBytes = sample.length == workUnits
+            ? new Range(sampledOutput + delimiters, sampledOutput + delimiters, sampledOutput + delimiters)
+            : extrapolate(outputPerByte, inputBytes, workUnits, delimiters, 1);
+
+        // Work units are encoded in parallel, on as many threads as there are, or processors to run them on.
+        final long parallelism = Math.max(1, Math.min(workUnits, Math.min(threads, Runtime.getRuntime().availableProcessors())));
+        final Range encodeMillis = extrapolate(nanosPerByte, inputBytes, Long.MAX_VALUE, 0, 1e6 * parallelism);
+
+        return new EncodeEstimate(
+            input.getPath(),
+            inputBytes,
+            workUnits,
+            sample.length,
+            operationSize.name(),
+            threads,
+            outputBytes,
+            encodeMillis,
+            this.encodeService.getDictionaryLoadTime().toMillis(),
+            this.estimatePeakHeap()
+        );
+    }
+
+    /**
+     * Writes the estimate to the given file as JSON. If the file exists, it will be overwritten.
+     *
+     * @param estimate The estimate to write.
+     * @param file     The file to write to.
+     */
+    public void writeEstimate(EncodeEstimate estimate, File file) throws IOException {
+        OBJECT_MAPPER.writeValue(file, estimate);
+    }
+
+    /**
+     * Prints the estimate in a human-readable form.
+     *
+     * @param estimate The estimate to print.
+     * @param out      The stream to print to.
+     */
+    public void printEstimate(EncodeEstimate estimate, PrintStream out) {
+        out.printf("Estimate for %s: %,d bytes in %,d work units (%s operation), %,d work units sampled%n", estimate.input(),
+            estimate.inputBytes(), estimate.workUnits(), estimate.operationSize(), estimate.sampledWorkUnits());
+        out.printf("Output size:   %,.0f bytes (95%% interval %,.0f to %,.0f)%n", estimate.outputBytes().estimate(),
+            estimate.outputBytes().lower(), estimate.outputBytes().upper());
+        out.printf("Encode time:   %,.1f s with %d threads (95%% interval %,.1f to %,.1f s), after %,.1f s to load the dictionaries%n",
+            estimate.encodeMillis().estimate() / 1000, estimate.threads(), estimate.encodeMillis().lower() / 1000,
+            estimate.encodeMillis().upper() / 1000, estimate.dictionaryLoadMillis() / 1000.0);
+        out.printf("Peak heap:     %,d MB%n", estimate.peakHeapBytes() >> 20);
+    }
+
+    /**
+     * Picks the work units to sample: the work units are split into {@link #sampleSize} equal strata, and one is picked at
+     * random from each. If there are no more work units than that, every work unit is picked.
+     *
+     * @param workUnits The number of work units.
+     * @return The indexes of the sampled work units, in ascending order.
+     */
+    private long[] sampleWorkUnits(long workUnits) {
+        if (workUnits <= this.sampleSize) {
+            final long[] sample = new long[(int) workUnits];
+            for (int i = 0; i < sample.length; i++) {
+                sample[i] = i;
+            }
+            return sample;
+        }
+
+        final Random random = new Random(SAMPLE_SEED);
+        final long[] sample = new long[this.sampleSize];
+        for (int i = 0; i < sample.length; i++) {
+            final long stratumStart = workUnits * i / sample.length;
+            final long stratumEnd = workUnits * (i + 1) / sample.length;
+            sample[i] = stratumStart + random.nextLong(stratumEnd - stratumStart);
+        }
+        return sample;
+    }
+
+    /**
+     * Extrapolates a quantity per byte of input, measured for each sampled work unit, to the whole input.
+     *
+     * @param perByte    The quantity per byte of input of each sampled work unit.
+     * @param inputBytes The number of bytes of input.
+     * @param population The number of work units the sample was drawn from, for the finite population correction. Pass
+     *                   {@link Long#MAX_VALUE} for quantities that vary from one measurement to the next, such as times.
+     * @param offset     A fixed amount to add to the total, such as the delimiters between work units.
+     * @param divisor    The amount to divide the total by, e.g. to convert its unit.
+     * @return The extrapolated total, with its 95% confidence interval.
+     */
+    private static Range extrapolate(double[] perByte, long inputBytes, long population, long offset, double divisor) {
+        if (perByte.length == 0) {
+            return new Range(offset / divisor, offset / divisor, offset / divisor);
+        }
+
+        double mean = 0;
+        for (double value : perByte) {
+            mean += value;
+        }
+        mean /= perByte.length;
+
+        double variance = 0;
+        for (double value : perByte) {
+            variance += (value - mean) * (value - mean);
+        }
+        variance = perByte.length > 1 ? variance / (perByte.length - 1) : 0;
+
+        final double correction = Math.max(0, 1 - (double) perByte.length / population);
+        final double margin = Z_95 * inputBytes * Math.sqrt(variance * correction / perByte.length);
+        final double estimate = mean * inputBytes + offset;
+        return new Range(estimate / divisor, Math.max(0, estimate - margin) / divisor, (estimate + margin) / divisor);
+    }
+
+    /**
+     * Estimates the peak heap use of the encoder, with the same model as {@link MemoryPlan}.
+     *
+     * @return The estimated peak heap use, in bytes.
+     */
+    private long estimatePeakHeap() throws IOException {
+        final MemoryPlan plan = this.encodeService.getMemoryPlan();
+        if (plan != null) {
+            return plan.estimatedBytes();
+        }
+
+        final MorseDictionary dictionary = this.encodeService.getDictionary();
+        long dictionaryBytes = 0;
+        for (WeightedDictionary weightedDictionary : dictionary.getDictionaries()) {
+            dictionaryBytes += MorseDictionary.estimateFootprint(weightedDictionary);
+        }
+        return MemoryPlan.estimatePeak(dictionaryBytes, this.encodeService.getWorkUnitSize(),
+            this.encodeService.getThreadPoolSize(), this.encodeService.getQueueCapacity());
+    }
+}
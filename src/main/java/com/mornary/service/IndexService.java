@@ -0,0 +1,142 @@
+package com.mornary.service;
+
+import com.mornary.model.Checkpoint;
+import com.mornary.model.MorseIndex;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Service for building the sidecar index (see {@link MorseIndex}) of a single file encode as its work units are written.
+ * <p>
+ * The output offsets are collected in memory, which takes 8 bytes per {@link MorseIndex#DEFAULT_INTERVAL} work units, and the
+ * index file is written when the encode completes. Any index left over from a previous encode to the same output is deleted
+ * when the encode starts, so an interrupted encode never leaves an index that does not match its output.
+ * <p>
+ * An encode that continues from a checkpoint recovers the offsets of the work units that were already written from the index of
+ * the previous encode, if there is one (e.g. in append mode), or otherwise by scanning the output.
+ *
+ * @author John Mortimore
+ */
+public class IndexService {
+
+    private final File indexFile;
+    private final int workUnitSize;
+    private final int interval;
+    private final int payloadOffset;
+
+    private long[] outputOffsets = new long[1024];
+    private int entries = 0;
+    private long outputBytes = 0;
+
+    /**
+     * Constructs a new Index Service for an encode. If the encode continues from a checkpoint, the offsets of the work units that
+     * were already written are recovered.
+     *
+     * @param output        The output file of the encode. The index is written next to it.
+     * @param workUnitSize  The number of bytes of payload per work unit.
+     * @param payloadOffset The number of bytes in front of the input in the payload.
+     * @param start         The checkpoint the encode starts from, or null if checkpoints are not enabled.
+     */
+    public IndexService(File output, int workUnitSize, int payloadOffset, Checkpoint start) throws IOException {
+        this.indexFile = MorseIndex.getIndexFile(output);
+        this.workUnitSize = workUnitSize;
+        this.interval = MorseIndex.DEFAULT_INTERVAL;
+        this.payloadOffset = payloadOffset;
+
+        if (start != null && start.workUnitsWritten() > 0 && !this.load(start.workUnitsWritten(), start.outputBytes())) {
+            this.scan(output, start.workUnitsWritten(), start.outputBytes());
+        }
+
+        Files.deleteIfExists(this.indexFile.toPath());
+    }
+
+    /**
+     * Records that a work unit has been written to the output.
+     *
+     * @param workUnitsWritten The number of work units written to the output, including this one.
+     * @param length           The number of bytes written to the output for this work unit, including the delimiter in front of it.
+     */
+    public void workUnitWritten(int workUnitsWritten, long length) {
+        if ((workUnitsWritten - 1) % this.interval == 0) {
+            if (this.entries == this.outputOffsets.length) {
+                this.outputOffsets = Arrays.copyOf(this.outputOffsets, this.entries * 2);
+            }
+            this.outputOffsets[this.entries++] = this.outputBytes;
+        }
+        this.outputBytes += length;
+    }
+
+    /**
+     * Writes the index file, once the encode has completed.
+     *
+     * @param payloadSize The number of bytes of payload that were encoded.
+     */
+    public void complete(long payloadSize) throws IOException {
+        MorseIndex.write(this.indexFile, this.workUnitSize, this.interval, this.payloadOffset, payloadSize - this.payloadOffset,
+            this.outputBytes, this.outputOffsets, this.entries);
+    }
+
+    /**
+     * Recovers the offsets of the work units that were written by a previous encode from its index. The index is only used if it
+     * has the same layout and covers at least those work units.
+     *
+     * @param workUnitsWritten The number of work units in the output.
+     * @param outputBytes      The number of bytes written to the output for those work units.
+     * @return True if the offsets were recovered.
+     */
+    private boolean load(int workUnitsWritten, long outputBytes) {
+        if (!this.indexFile.isFile()) {
+            return false;
+        }
+
+        try {
+            final MorseIndex previous = MorseIndex.open(this.indexFile);
+            final int entries = Math.ceilDiv(workUnitsWritten, this.interval);
+            if (previous.getWorkUnitSize() != this.workUnitSize || previous.getInterval() != this.interval
+                || previous.getPayloadOffset() != this.payloadOffset || previous.getOutputSize() < outputBytes
+                || previous.getEntries() < entries) {
+                return false;
+            }
+            this.outputOffsets = Arrays.copyOf(previous.readOutputOffsets(), Math.max(entries, this.outputOffsets.length));
+            this.entries = entries;
+            this.outputBytes = outputBytes;
+            return true;
+        } catch (IOException e) {
+            return false; // Not a valid index, so the output is scanned instead.
+        }
+    }
+
+    /**
+     * Recovers the lengths of the work units that were written before an encode was interrupted. Every dot and dash is one bit
+     * of payload and every work unit but the last is full, so each work unit ends with the dot or dash that completes its bits.
+     *
+     * @param output           The output file.
+     * @param workUnitsWritten The number of work units in the output.
+     * @param outputBytes      The number of bytes written to the output for those work units.
+     */
+    private void scan(File output, int workUnitsWritten, long outputBytes) throws IOException {
+        final long bitsPerWorkUnit = 8L * this.workUnitSize;
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(output), 64 * 1024)) {
+            long position = 0;
+            long workUnitStart = 0;
+            long bits = 0;
+            int workUnits = 0;
+            int c;
+            while (workUnits < workUnitsWritten - 1 && (c = is.read()) >= 0) {
+                position++;
+                if ((c == '.' || c == '-') && ++bits == (workUnits + 1) * bitsPerWorkUnit) {
+                    this.workUnitWritten(++workUnits, position - workUnitStart);
+                    workUnitStart = position;
+                }
+            }
+            this.workUnitWritten(workUnitsWritten, outputBytes - workUnitStart);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mornary.service;
+
+import com.mornary.utility.OutputUtility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Service for merging the outputs of a sharded encode (see {@link com.mornary.model.Shard}) into a single Mornary-encoded output.
+ *
+ * @author John Mortimore
+ */
+public class MergeService {
+
+    private static final byte[] MORSE_CODE_WORD_DELIMITER = " / ".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Merges the given shard outputs, in order, and writes the result to the specified output file, or to the console if output is
+     * null. The shard outputs are joined with the word delimiter, as work units are within a single output. Empty shard outputs
+     * (from shards with no work units) are skipped.
+     *
+     * @param shards The shard outputs, in shard order.
+     * @param output The file to write the merged output to. If the file exists, it will be truncated; if it does not exist, it
+     *               will be created. If null, then the merged output will be printed to the console.
+     */
+    public void merge(List<File> shards, File output) throws IOException {
+        try (OutputStream os = OutputUtility.createOutputStream(output)) {
+            boolean first = true;
+            for (File shard : shards) {
+                if (shard.length() == 0) {
+                    continue;
+                }
+                if (!first) {
+                    os.write(MORSE_CODE_WORD_DELIMITER);
+                }
+                Files.copy(shard.toPath(), os);
+                first = false;
+            }
+            if (output == null) { // Write an extra line separator for console output.
+                os.write(System.lineSeparator().getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+}
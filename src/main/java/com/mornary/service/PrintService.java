@@ -3,52 +3,108 @@ package com.mornary.service;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for printing progress updates to the console.
+ * <p>
+ * Progress is tracked with an atomic counter that the writing thread updates with {@link #setProgress(long)}. A scheduled
+ * reporter thread reads the counter and prints to the console once per second, so the writing thread never blocks on console
+ * I/O. Each instance tracks a single operation, from construction until it is closed.
  *
  * @author John Mortimore
  */
-public class PrintService {
+public class PrintService implements AutoCloseable {
+
+    private final long totalWorkUnits;
+    private final String unitName;
 
     private final Instant startTime;
-    private Instant lastProgressPrint;
+    private final AtomicLong workUnitsCompleted = new AtomicLong();
 
     /**
-     * Constructs a new Print Service.
+     * The reporter thread. Null if progress is not being printed.
      */
-    public PrintService() {
-        this.startTime = Instant.now();
-        this.lastProgressPrint = this.startTime;
-    }
+    private final ScheduledExecutorService reporter;
 
     /**
-     * Prints the current progress percentage to the console.
+     * Constructs a new Print Service and, if enabled, starts its reporter thread.
      *
-     * @param workUnitsWritten The number of completed work units that have been written to the output file.
-     * @param totalWorkUnits   The total number of work units in the operation.
+     * @param totalWorkUnits The total number of units of work in the operation, or -1 if the total is not known.
+     * @param unitName       The name of the units of work, e.g. "Work Units" or "Files".
+     * @param enabled        True if progress should be printed to the console. If false, progress is tracked but never printed.
      */
-    public void printProgress(long workUnitsWritten, long totalWorkUnits) {
-        Instant now = Instant.now();
-
-        long secondsSinceLastPrint = Duration.between(this.lastProgressPrint, now).getSeconds();
-        final boolean jobCompleted = workUnitsWritten == totalWorkUnits;
+    public PrintService(long totalWorkUnits, String unitName, boolean enabled) {
+        this.totalWorkUnits = totalWorkUnits;
+        this.unitName = unitName;
+        this.startTime = Instant.now();
 
-        // Print at most once per second, unless this is the final work unit.
-        if (secondsSinceLastPrint >= 1 || jobCompleted) {
-            double progress = ((double) workUnitsWritten / totalWorkUnits);
-            double percent = progress * 100.0;
+        if (enabled) {
+            this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mornary-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.reporter.scheduleAtFixedRate(this::printProgress, 1, 1, TimeUnit.SECONDS);
+        } else {
+            this.reporter = null;
+        }
+    }
 
-            long seconds = Duration.between(this.startTime, now).getSeconds();
-            long estimatedTotalSeconds = (long) (seconds / progress);
-            long estimatedSecondsRemaining = estimatedTotalSeconds - seconds;
+    /**
+     * Updates the number of completed units of work. Never blocks.
+     *
+     * @param workUnitsCompleted The number of completed units of work, e.g. work units written to the output file.
+     */
+    public void setProgress(long workUnitsCompleted) {
+        this.workUnitsCompleted.set(workUnitsCompleted);
+    }
 
-            System.out.printf("\rWork Units Completed: %d of %d (%.2f%%). Elapsed Time: %ss. Estimated Time Remaining: %ss",
-                workUnitsWritten, totalWorkUnits, percent, seconds, estimatedSecondsRemaining);
-            this.lastProgressPrint = now;
-            if (jobCompleted) {
+    /**
+     * Stops the reporter thread. If progress is being printed, the final progress is printed along with the completion time (if
+     * every unit of work was completed).
+     */
+    @Override
+    public void close() {
+        if (this.reporter != null) {
+            this.reporter.shutdownNow();
+            try {
+                this.reporter.awaitTermination(1, TimeUnit.SECONDS); // Don't interleave with a print that is in progress.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.printProgress();
+            if (this.workUnitsCompleted.get() >= this.totalWorkUnits) { // Unknown totals are -1.
                 System.out.println(System.lineSeparator() + "Job Completed at: " + LocalDateTime.now());
+            } else {
+                System.out.println();
             }
         }
     }
+
+    /**
+     * Prints the current progress to the console. Includes the percentage and estimated time remaining when the total number of
+     * units of work is known.
+     */
+    private void printProgress() {
+        final long completed = this.workUnitsCompleted.get();
+        final long seconds = Duration.between(this.startTime, Instant.now()).getSeconds();
+
+        if (this.totalWorkUnits < 0) {
+            System.out.printf("\r%s Completed: %d. Elapsed Time: %ss", this.unitName, completed, seconds);
+            return;
+        }
+
+        double progress = this.totalWorkUnits == 0 ? 1.0 : ((double) completed / this.totalWorkUnits);
+        double percent = progress * 100.0;
+
+        long estimatedTotalSeconds = progress == 0 ? 0 : (long) (seconds / progress);
+        long estimatedSecondsRemaining = estimatedTotalSeconds - seconds;
+
+        System.out.printf("\r%s Completed: %d of %d (%.2f%%). Elapsed Time: %ss. Estimated Time Remaining: %ss",
+            this.unitName, completed, this.totalWorkUnits, percent, seconds, estimatedSecondsRemaining);
+    }
 }
@@ -0,0 +1,119 @@
+package com.mornary.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mornary.metrics.LatencySnapshot;
+import com.mornary.metrics.PipelineMetrics;
+import com.mornary.model.RunReport;
+import com.mornary.model.RunReport.StageTiming;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service for creating machine-readable run reports from the {@link PipelineMetrics}.
+ * <p>
+ * The pipeline metrics are process-wide, so constructing this service resets them. Only one run should be reported on at a time.
+ *
+ * @author John Mortimore
+ */
+public class ReportService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    private final Instant startTime;
+    private final long startNanos;
+
+    /**
+     * Constructs a new Report Service and starts timing the run.
+     */
+    public ReportService() {
+        this.metrics.reset();
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a report of the run so far.
+     *
+     * @param operation          The operation that was run, e.g. "encode-file".
+     * @param input              The input file, directory, or glob. Null for text inputs.
+     * @param output             The output file or directory. Null for console output.
+     * @param dictionaryLoadTime How long it took to load the dictionaries. Zero when decoding.
+     * @return The report.
+     */
+    public RunReport createReport(String operation, String input, File output, Duration dictionaryLoadTime) {
+        final long elapsedNanos = System.nanoTime() - this.startNanos;
+        final long inputBytes = this.metrics.getBytesRead();
+        final long segments = this.metrics.getSegmentsEmitted();
+        final long fallbackLetters = this.metrics.getFallbackLetters();
+        final long cacheHits = this.metrics.getCandidateCacheHits();
+        final long cacheLookups = cacheHits + this.metrics.getCandidateCacheMisses();
+
+        final Map<String, StageTiming> stages = new LinkedHashMap<>();
+        stages.put("read", toStageTiming(this.metrics.getReadLatency()));
+        stages.put("queueWait", toStageTiming(this.metrics.getQueueWaitLatency()));
+        stages.put("encode", toStageTiming(this.metrics.getEncodeLatency()));
+        stages.put("reorderWait", toStageTiming(this.metrics.getReorderWaitLatency()));
+        stages.put("write", toStageTiming(this.metrics.getWriteLatency()));
+
+        // Decoding has no encode stage, so its work units are counted by its reads.
+        final long workUnits = this.metrics.getWorkUnitsEncoded() > 0
+            ? this.metrics.getWorkUnitsEncoded()
+            : this.metrics.getReadLatency().getCount();
+
+        return new RunReport(
+            operation,
+            input,
+            output == null ? null : output.getPath(),
+            this.startTime.toString(),
+            Duration.ofNanos(elapsedNanos).toMillis(),
+            inputBytes,
+            this.metrics.getBytesWritten(),
+            workUnits,
+            elapsedNanos == 0 ? 0 : inputBytes / (elapsedNanos / 1e9),
+            dictionaryLoadTime.toMillis(),
+            this.metrics.getPeakReorderBufferDepth(),
+            segments,
+            fallbackLetters,
+            segments == 0 ? 0 : (double) fallbackLetters / segments,
+            cacheHits,
+            cacheLookups - cacheHits,
+            cacheLookups == 0 ? 0 : (double) cacheHits / cacheLookups,
+            stages
+        );
+    }
+
+    /**
+     * Writes the report to the given file as JSON. If the file exists, it will be overwritten.
+     *
+     * @param report The report to write.
+     * @param file   The file to write to.
+     */
+    public void writeReport(RunReport report, File file) throws IOException {
+        OBJECT_MAPPER.writeValue(file, report);
+    }
+
+    /**
+     * Converts a latency snapshot to the report's stage timing.
+     *
+     * @param snapshot The latency snapshot.
+     * @return The stage timing.
+     */
+    private static StageTiming toStageTiming(LatencySnapshot snapshot) {
+        return new StageTiming(
+            snapshot.getCount(),
+            snapshot.getTotalMicros() / 1000,
+            snapshot.getMeanMicros(),
+            snapshot.getP50Micros(),
+            snapshot.getP99Micros(),
+            snapshot.getMaxMicros()
+        );
+    }
+}
@@ -1,56 +1,118 @@
 package com.mornary.utility;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.model.Alphabet;
 import com.mornary.model.Encoding;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
 
 /**
  * Utility class for dealing with Morse Code.
+ * <p>
+ * The Morse code tables are compiled into {@link MorseTable} at build time, so no JSON is parsed at startup: the Latin alphabet from
+ * morsecode.json, and each extended {@link Alphabet} from morsecode-&lt;alphabet&gt;.json.
  *
  * @author John Mortimore
  */
 public class MorseUtility {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-
     private static final String MORSE_CODE_LETTER_DELIMITER = " ";
     private static final String MORSE_CODE_WORD_DELIMITER = "/";
 
-    private static final Map<Character, String> ENCODING_MAP = new HashMap<>();
+    private static final Alphabet[] ALPHABETS = Alphabet.values();
+
+    /**
+     * The Morse code of each character of each alphabet, indexed by the alphabet's ordinal and then by the character. Null for
+     * characters that have no Morse code in the alphabet.
+     */
+    private static final String[][] ENCODING_TABLES = new String[ALPHABETS.length][];
+
+    /**
+     * The index of each alphabet in {@link MorseTable}, indexed by the alphabet's ordinal.
+     */
+    private static final int[] TABLE_INDEXES = new int[ALPHABETS.length];
 
     static {
-        URL morseUrl = MorseUtility.class.getResource("/morsecode.json");
-        assert morseUrl != null;
-        try (InputStream in = morseUrl.openStream()) {
-            Arrays.stream(OBJECT_MAPPER.readValue(in, Encoding[].class)).
-                forEach(encoding -> ENCODING_MAP.put(encoding.getCharacter(), encoding.getCode()));
-
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        for (Alphabet alphabet : ALPHABETS) {
+            final int table = indexOf(alphabet);
+            final char[] characters = MorseTable.CHARACTERS[table];
+            final String[] codes = MorseTable.CODES[table];
+
+            char maxCharacter = 0;
+            for (char c : characters) {
+                maxCharacter = (char) Math.max(maxCharacter, c);
+            }
+
+            final String[] encodingTable = new String[maxCharacter + 1];
+            for (int i = 0; i < characters.length; i++) {
+                encodingTable[characters[i]] = codes[i];
+            }
+            ENCODING_TABLES[alphabet.ordinal()] = encodingTable;
+            TABLE_INDEXES[alphabet.ordinal()] = table;
+        }
+    }
+
+    private static int indexOf(Alphabet alphabet) {
+        final String name = alphabet.name().toLowerCase(Locale.US);
+        for (int i = 0; i < MorseTable.NAMES.length; i++) {
+            if (MorseTable.NAMES[i].equals(name)) {
+                return i;
+            }
         }
+        throw new IllegalStateException("No Morse code table for " + name);
+    }
+
+    /**
+     * Retrieves every character of the Latin alphabet, with its code.
+     *
+     * @return A new array of the encodings.
+     */
+    public static Encoding[] getEncodings() {
+        return getEncodings(Alphabet.LATIN);
     }
 
     /**
-     * Converts the given text to Morse code.
+     * Retrieves every character of the given alphabet, with its code.
+     *
+     * @param alphabet The alphabet.
+     * @return A new array of the encodings.
+     */
+    public static Encoding[] getEncodings(Alphabet alphabet) {
+        final int table = TABLE_INDEXES[alphabet.ordinal()];
+        final Encoding[] encodings = new Encoding[MorseTable.CHARACTERS[table].length];
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = new Encoding(MorseTable.CHARACTERS[table][i], MorseTable.CODES[table][i]);
+        }
+        return encodings;
+    }
+
+    /**
+     * Converts the given text to Morse code, using the Latin alphabet.
      *
      * @param text The text to convert.
      * @return The encoded text.
      */
     public static String toMorseCode(String text) {
+        return toMorseCode(text, Set.of(Alphabet.LATIN));
+    }
+
+    /**
+     * Converts the given text to Morse code, using the given alphabets. Characters that have no Morse code in any of the
+     * alphabets are left as they are.
+     *
+     * @param text      The text to convert.
+     * @param alphabets The alphabets to use.
+     * @return The encoded text.
+     */
+    public static String toMorseCode(String text, Set<Alphabet> alphabets) {
         StringJoiner morseCode = new StringJoiner(MORSE_CODE_LETTER_DELIMITER);
         final String upperCase = text.toUpperCase(Locale.US);
         for (int i = 0; i < upperCase.length(); i++) {
             char c = upperCase.charAt(i);
-            if (ENCODING_MAP.containsKey(c)) {
-                morseCode.add(ENCODING_MAP.get(c));
+            final String code = getCode(c, alphabets);
+            if (code != null) {
+                morseCode.add(code);
             } else if (' ' == c) {
                 morseCode.add(MORSE_CODE_WORD_DELIMITER);
             } else {
@@ -60,4 +122,22 @@ public class MorseUtility {
 
         return morseCode.toString();
     }
+
+    /**
+     * Retrieves the Morse code of a character from whichever of the given alphabets has it. No character is in more than one
+     * alphabet.
+     *
+     * @param c         The character, in upper case.
+     * @param alphabets The alphabets to look in.
+     * @return The Morse code, or null if none of the alphabets have the character.
+     */
+    private static String getCode(char c, Set<Alphabet> alphabets) {
+        for (Alphabet alphabet : ALPHABETS) {
+            final String[] encodingTable = ENCODING_TABLES[alphabet.ordinal()];
+            if (c < encodingTable.length && encodingTable[c] != null && alphabets.contains(alphabet)) {
+                return encodingTable[c];
+            }
+        }
+        return null;
+    }
 }
@@ -8,6 +8,9 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -49,6 +52,30 @@ public class OutputUtility {
         };
     }
 
+    /**
+     * Creates a BufferedWriter that appends to the specified output file after truncating it to the given length. Used to resume
+     * output that was interrupted.
+     *
+     * @param output The output file to use. It will be created if it does not exist.
+     * @param length The length to truncate the file to. Anything written after this point is discarded.
+     * @return The BufferedWriter.
+     */
+    public static BufferedWriter createWriter(File output, long length) throws IOException {
+        FileChannel channel = FileChannel.open(
+                Paths.get(output.toURI()),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE
+        );
+        try {
+            channel.truncate(length);
+            channel.position(length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
     /**
      * Creates an appropriate OutputStream for the specified output file.
      *
@@ -0,0 +1,98 @@
+package com.mornary.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link ParallelDeflaterInputStream} and {@link PayloadOutputStream}.
+ *
+ * @author John Mortimore
+ */
+public class ParallelDeflaterInputStreamTest {
+
+    @Test
+    void read_variousSizes_inflatesToInput() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int size : new int[]{0, 1, 1000, ParallelDeflaterInputStream.CHUNK_SIZE, 3 * ParallelDeflaterInputStream.CHUNK_SIZE + 17}) {
+                final byte[] input = createCompressibleInput(size);
+
+                final byte[] compressed;
+                try (InputStream stream = new ParallelDeflaterInputStream(new ByteArrayInputStream(input), executor, 2)) {
+                    compressed = stream.readAllBytes();
+                }
+
+                assertArrayEquals(input, inflate(compressed));
+                assertTrue(size < 1000 || compressed.length < size / 2);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void deflate_payloadOutputStream_inflatesToInput() throws IOException {
+        final byte[] input = createCompressibleInput(200_000);
+
+        assertArrayEquals(input, inflate(ParallelDeflaterInputStream.deflate(input)));
+    }
+
+    @Test
+    void write_noHeader_passedThrough() throws IOException {
+        final byte[] input = {(byte) 0x89, 'M', 'N', 'x', 'y'}; // Starts like the magic sequence, but isn't.
+
+        assertArrayEquals(input, inflate(input));
+        assertArrayEquals(new byte[]{(byte) 0x89, 'M'}, inflate(new byte[]{(byte) 0x89, 'M'}));
+    }
+
+    @Test
+    void write_storedHeader_headerRemoved() throws IOException {
+        final byte[] header = PayloadHeader.create(PayloadHeader.STORED);
+        final byte[] input = PayloadHeader.create(PayloadHeader.DEFLATE);
+        final byte[] payload = new byte[header.length + input.length];
+        System.arraycopy(header, 0, payload, 0, header.length);
+        System.arraycopy(input, 0, payload, header.length, input.length);
+
+        assertArrayEquals(input, inflate(payload));
+    }
+
+    @Test
+    void close_truncatedDeflateStream_throws() throws IOException {
+        final byte[] payload = ParallelDeflaterInputStream.deflate(createCompressibleInput(10_000));
+        final byte[] truncated = Arrays.copyOf(payload, payload.length / 2);
+
+        assertThrows(IOException.class, () -> inflate(truncated));
+    }
+
+    private static byte[] inflate(byte[] payload) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PayloadOutputStream stream = new PayloadOutputStream(out)) {
+            for (int i = 0; i < payload.length; i += 999) { // Write in uneven pieces.
+                stream.write(payload, i, Math.min(999, payload.length - i));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] createCompressibleInput(int size) {
+        final Random random = new Random(size);
+        final String[] words = {"INFO ", "WARN ", "request ", "completed ", "in ", "ms ", "{\"id\": ", "}\n"};
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(100));
+        }
+        return builder.substring(0, size).getBytes();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mornary.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link LatencyHistogram}.
+ *
+ * @author John Mortimore
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    void snapshot_recordedLatencies_countsAndPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(3)); // Bucket [2, 4) microseconds.
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        final LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(99 * 3 + 5000, snapshot.getTotalMicros());
+        assertEquals(5000, snapshot.getMaxMicros());
+        assertEquals(99, snapshot.getBucketCounts()[2]);
+        assertEquals(4, snapshot.getP50Micros());
+        assertEquals(4, snapshot.getP99Micros());
+    }
+
+    @Test
+    void reset_recordedLatencies_empty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+
+        histogram.reset();
+
+        final LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP50Micros());
+        assertEquals(0.0, snapshot.getMeanMicros(), 0.0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link BitReader}.
+ *
+ * @author John Mortimore
+ */
+public class BitReaderTest {
+
+    @Test
+    void peekBits_unalignedOffsets_matchesGetBit() {
+        final byte[] data = {(byte) 0b10110011, (byte) 0b01011100, (byte) 0xFF, 0x00, 0x12, 0x34, 0x56, 0x78, (byte) 0x9A, (byte) 0xBC};
+        final BitReader bitReader = new BitReader(data, data.length);
+        bitReader.advance(3);
+
+        for (int offset = 0; offset < 8; offset++) {
+            for (int count = 0; count <= Math.min(64, bitReader.remainingBits() - offset); count++) {
+                long expected = 0;
+                for (int i = 0; i < count; i++) {
+                    expected = (expected << 1) | bitReader.getBit(offset + i);
+                }
+                assertEquals(expected, bitReader.peekBits(offset, count));
+            }
+        }
+    }
+
+    @Test
+    void peekBits_doesNotAdvance() {
+        final BitReader bitReader = new BitReader(new byte[]{(byte) 0b01100000}, 1);
+
+        assertEquals(0b011, bitReader.peekBits(0, 3));
+        assertEquals(8, bitReader.remainingBits());
+    }
+}
@@ -0,0 +1,48 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test class for {@link CandidateCache}.
+ *
+ * @author John Mortimore
+ */
+public class CandidateCacheTest {
+
+    @Test
+    void get_afterPut_hits() {
+        final CandidateCache cache = new CandidateCache(16);
+        final int key = CandidateCache.key(0b1011);
+        final CandidateCache.Entry entry = new CandidateCache.Entry(key, new int[]{3, 1, 2}, null, 0);
+
+        assertNull(cache.get(key));
+        cache.put(entry);
+        assertSame(entry, cache.get(key));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void get_otherKeyInSameSlot_misses() {
+        final CandidateCache cache = new CandidateCache(1); // Every key shares the single slot.
+        final int first = CandidateCache.key(1);
+        final int second = CandidateCache.key(2);
+
+        cache.put(new CandidateCache.Entry(first, new int[0], null, 0));
+        cache.put(new CandidateCache.Entry(second, new int[0], null, 0));
+
+        assertNull(cache.get(first));
+        assertEquals(second, cache.get(second).key());
+    }
+
+    @Test
+    void key_differentOptimizations_differ() {
+        assertNotEquals(CandidateCache.key(5, Optimization.WORDS), CandidateCache.key(5, Optimization.SIZE));
+    }
+}
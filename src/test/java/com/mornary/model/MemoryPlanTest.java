@@ -0,0 +1,58 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link MemoryPlan}.
+ *
+ * @author John Mortimore
+ */
+public class MemoryPlanTest {
+
+    private static final long MB = 1L << 20;
+    private static final long[] FOOTPRINTS = {20 * MB, 2 * MB, 2 * MB, 1 * MB};
+
+    @Test
+    void fit_largeBudget_loadsEveryDictionaryWithFullQueue() {
+        final MemoryPlan plan = MemoryPlan.fit(1024 * MB, FOOTPRINTS, 1024, 4);
+        assertEquals(FOOTPRINTS.length, plan.dictionaryCount());
+        assertEquals(4 * MemoryPlan.MAX_QUEUED_WORK_UNITS_PER_THREAD, plan.queueCapacity());
+        assertTrue(plan.estimatedBytes() <= 1024 * MB);
+    }
+
+    @Test
+    void fit_smallBudget_loadsLeadingDictionariesOnly() {
+        final MemoryPlan plan = MemoryPlan.fit(31 * MB, FOOTPRINTS, 1024, 4);
+        assertEquals(2, plan.dictionaryCount());
+        assertTrue(plan.queueCapacity() >= 4);
+        assertTrue(plan.estimatedBytes() <= 31 * MB);
+    }
+
+    @Test
+    void fit_budgetFitsEverythingButFullQueue_shortensQueue() {
+        final long pipeline = 4 * (MemoryPlan.BYTES_PER_THREAD + 2 * 1024 * MemoryPlan.BYTES_PER_WORK_UNIT_BYTE);
+        final long budget = MemoryPlan.FIXED_BYTES + pipeline + 25 * MB + 6 * 1024 * MemoryPlan.BYTES_PER_WORK_UNIT_BYTE;
+        final MemoryPlan plan = MemoryPlan.fit(budget, FOOTPRINTS, 1024, 4);
+        assertEquals(FOOTPRINTS.length, plan.dictionaryCount());
+        assertEquals(6, plan.queueCapacity());
+        assertEquals(budget, plan.estimatedBytes());
+    }
+
+    @Test
+    void estimatePeak_fittedPlan_sameAsPlanEstimate() {
+        final MemoryPlan plan = MemoryPlan.fit(31 * MB, FOOTPRINTS, 1024, 4);
+        final long dictionaryBytes = FOOTPRINTS[0] + FOOTPRINTS[1];
+        assertEquals(plan.estimatedBytes(), MemoryPlan.estimatePeak(dictionaryBytes, 1024, 4, plan.queueCapacity()));
+    }
+
+    @Test
+    void fit_budgetTooSmall_throws() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> MemoryPlan.fit(10 * MB, FOOTPRINTS, 1024, 4));
+        assertTrue(e.getMessage().contains("4 threads"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.mornary.model;
+
+import com.mornary.utility.MorseUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link RadixMorseTrie}.
+ *
+ * @author John Mortimore
+ */
+public class RadixMorseTrieTest {
+
+    private static final String[] WORDS = {
+        "a", "at", "ate", "atom", "atoms", "w", "we", "wet", "e", "ee", "eee", "eeee", "the", "then", "there", "quiz",
+        "quizzical", "quizzically", "zzzzzzzzzz", "mom", "moment", "momentous", "o", "oo", "ooo"
+    };
+
+    @Test
+    void constructor_singleChildChains_collapsed() {
+        final SegmentStore store = createStore();
+
+        final RadixMorseTrie radixTrie = new RadixMorseTrie(store);
+
+        assertTrue(radixTrie.getNumberOfNodes() < countPrefixes(store));
+    }
+
+    @Test
+    void path_randomInputs_textSegmentsThatPrefixInput() {
+        final SegmentStore store = createStore();
+        final RadixMorseTrie radixTrie = new RadixMorseTrie(store);
+        final Random random = new Random(7);
+
+        for (int i = 0; i < 2000; i++) {
+            final byte[] data = new byte[1 + random.nextInt(12)];
+            random.nextBytes(data);
+            if (random.nextBoolean()) {
+                data[0] = 0; // Favour the dot-heavy words.
+            }
+            final BitReader bitReader = new BitReader(data, data.length);
+            bitReader.advance(random.nextInt(8));
+
+            assertEquals(prefixSegments(store, bitReader), pathSegments(radixTrie.getRoot(), bitReader));
+        }
+    }
+
+    @Test
+    void constructor_segmentStore_maxScoreBoundsSubtree() {
+        final SegmentStore store = createStore();
+        final RadixMorseTrie radixTrie = new RadixMorseTrie(store);
+
+        assertMaxScoreBoundsSubtree(radixTrie.getRoot(), store);
+    }
+
+    private static SegmentStore createStore() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        for (String word : WORDS) {
+            builder.add(word, MorseUtility.toMorseCode(word), 1.0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Counts the distinct prefixes of the text segments' bit patterns, including the empty prefix, which is the number of nodes
+     * in an uncompressed trie of them.
+     */
+    private static int countPrefixes(SegmentStore store) {
+        final Set<String> prefixes = new HashSet<>();
+        for (int id = 0; id < store.size(); id++) {
+            final int bitLength = store.getBitLength(id);
+            for (int length = 0; length <= bitLength; length++) {
+                prefixes.add(length + ":" + (store.getBitPattern(id) >>> (bitLength - length)));
+            }
+        }
+        return prefixes.size();
+    }
+
+    /**
+     * Asserts that each node's maximum scores are at least the static score of every text segment at or below it, and returns the
+     * ids of those text segments.
+     */
+    private static List<Integer> assertMaxScoreBoundsSubtree(RadixMorseTrieNode node, SegmentStore store) {
+        final List<Integer> segmentIds = new ArrayList<>();
+        addSegmentIds(segmentIds, node.getFirstSegmentId(), node.getSegmentCount());
+        for (int bit = 0; bit <= 1; bit++) {
+            if (node.getChild(bit) != null) {
+                segmentIds.addAll(assertMaxScoreBoundsSubtree(node.getChild(bit), store));
+            }
+        }
+        for (int segmentId : segmentIds) {
+            assertTrue(node.getMaxScore(Optimization.WORDS) >= store.getScore(segmentId));
+            assertTrue(node.getMaxScore(Optimization.SIZE) >= store.getSizeScore(segmentId));
+        }
+        return segmentIds;
+    }
+
+    private static void addSegmentIds(List<Integer> segmentIds, int firstSegmentId, int segmentCount) {
+        for (int i = 0; i < segmentCount; i++) {
+            segmentIds.add(firstSegmentId + i);
+        }
+    }
+
+    /**
+     * Collects, by brute force, the ids of the text segments whose bit pattern is a prefix of the input and shorter than it.
+     */
+    private static List<Integer> prefixSegments(SegmentStore store, BitReader bitReader) {
+        final List<Integer> textSegments = new ArrayList<>();
+        for (int id = 0; id < store.size(); id++) {
+            final int bitLength = store.getBitLength(id);
+            if (bitLength < bitReader.remainingBits() && bitReader.peekBits(0, bitLength) == store.getBitPattern(id)) {
+                textSegments.add(id);
+            }
+        }
+        return textSegments;
+    }
+
+    /**
+     * Collects the text segment ids of every node on the input's path whose depth is less than the remaining bits, following
+     * compressed edges.
+     */
+    private static List<Integer> pathSegments(RadixMorseTrieNode root, BitReader bitReader) {
+        final List<Integer> textSegments = new ArrayList<>();
+        final int maxDepth = bitReader.remainingBits();
+        RadixMorseTrieNode node = root;
+        int depth = 0;
+        while (depth < maxDepth) {
+            addSegmentIds(textSegments, node.getFirstSegmentId(), node.getSegmentCount());
+            final int bit = bitReader.getBit(depth);
+            final int length = node.getLabelLength(bit);
+            if (node.getChild(bit) == null || depth + length >= maxDepth || bitReader.peekBits(depth, length) != node.getLabel(bit)) {
+                break;
+            }
+            node = node.getChild(bit);
+            depth += length;
+        }
+        return textSegments;
+    }
+}
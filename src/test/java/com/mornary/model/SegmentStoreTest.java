@@ -0,0 +1,86 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link SegmentStore}.
+ *
+ * @author John Mortimore
+ */
+public class SegmentStoreTest {
+
+    @Test
+    void build_matchesTextSegment() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        builder.add("at the", ".- - / - .... .", 1.1);
+        final SegmentStore store = builder.build();
+
+        final TextSegment expected = new TextSegment("at the", ".- - / - .... .", 1.1);
+        assertEquals(1, store.size());
+        assertEquals(expected.getEnglish(), store.getEnglish(0));
+        assertEquals(expected.getBitPattern(), store.getBitPattern(0));
+        assertEquals(expected.getBitLength(), store.getBitLength(0));
+        assertEquals(expected.getNumberOfLetters(), store.getNumberOfLetters(0));
+        assertEquals(2, store.getNumberOfWords(0));
+        assertEquals(5 * 1.1, store.getScore(0), 1e-9);
+    }
+
+    @Test
+    void getSizeScore_bitsPerOutputCharacter() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        builder.add("at the", ".- - / - .... .", 1.0);
+        final SegmentStore store = builder.build();
+
+        // ".- - / - .... ." followed by " / " before the next text segment is 18 characters for 9 bits.
+        final String output = ".- - / - .... ." + " / ";
+        assertEquals(18, output.length());
+        assertEquals(9.0 / 18, store.getSizeScore(0), 1e-9);
+    }
+
+    @Test
+    void add_duplicateIgnoringCase_highestMultiplierKept() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        builder.add("Tea", "- . .-", 0.7);
+        builder.add("tea", "- . .-", 1.5);
+        builder.add("TEA", "- . .-", 1.0);
+        final SegmentStore store = builder.build();
+
+        assertEquals(1, store.size());
+        assertEquals("Tea", store.getEnglish(0));
+        assertEquals(1.5, store.getScoreMultiplier(0), 1e-6);
+    }
+
+    @Test
+    void build_orderedInTrieOrder() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        builder.add("m", "--", 1.0);      // --
+        builder.add("tt", "- -", 1.0);    // --
+        builder.add("e", ".", 1.0);       // .
+        builder.add("n", "-.", 1.0);      // -.
+        builder.add("nth", "-. - ....", 1.0); // -.-....
+        builder.add("t", "-", 1.0);       // -
+        final SegmentStore store = builder.build();
+
+        final List<String> english = IntStream.range(0, store.size()).mapToObj(store::getEnglish).toList();
+        assertEquals(List.of("e", "t", "n", "nth"), english.subList(0, 4));
+        assertEquals(Set.of("m", "tt"), Set.copyOf(english.subList(4, 6)));
+    }
+
+    @Test
+    void getScore_noVowels_penalized() {
+        final SegmentStore.Builder builder = new SegmentStore.Builder();
+        builder.add("nth", "-. - ....", 1.0);
+        builder.add("ant", ".- -. -", 1.0);
+        final SegmentStore store = builder.build();
+
+        for (int id = 0; id < store.size(); id++) {
+            assertEquals(store.getEnglish(id).equals("nth") ? 1.5 : 3.0, store.getScore(id), 1e-9);
+        }
+    }
+}
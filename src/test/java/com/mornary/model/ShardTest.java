@@ -0,0 +1,51 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for {@link Shard}.
+ *
+ * @author John Mortimore
+ */
+public class ShardTest {
+
+    @Test
+    void shards_coverEveryWorkUnitOnce() {
+        for (int count = 1; count <= 7; count++) {
+            for (long totalWorkUnits = 0; totalWorkUnits <= 20; totalWorkUnits++) {
+                long expectedStart = 0;
+                for (int index = 1; index <= count; index++) {
+                    final Shard shard = new Shard(index, count);
+                    assertEquals(expectedStart, shard.getFirstWorkUnit(totalWorkUnits));
+                    expectedStart = shard.getEndWorkUnit(totalWorkUnits);
+                }
+                assertEquals(totalWorkUnits, expectedStart);
+            }
+        }
+    }
+
+    @Test
+    void shards_differInSizeByAtMostOne() {
+        for (int index = 1; index <= 4; index++) {
+            final Shard shard = new Shard(index, 4);
+            final long size = shard.getEndWorkUnit(10) - shard.getFirstWorkUnit(10);
+            assertEquals(10 / 4, size, 1);
+        }
+    }
+
+    @Test
+    void constructor_indexOutOfRange_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new Shard(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new Shard(5, 4));
+    }
+
+    @Test
+    void constructor_countBelowOne_throwsWithCountMessage() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new Shard(1, 0));
+
+        assertEquals("Shard count must be at least 1, was 0", e.getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+package com.mornary.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link WorkUnit}.
+ *
+ * @author John Mortimore
+ */
+public class WorkUnitTest {
+
+    @Test
+    void findPeriod_zeroFilled_isOne() {
+        assertEquals(1, new WorkUnit(new byte[1024], 1024, 0).findPeriod(64));
+    }
+
+    @Test
+    void findPeriod_partialLastRepetition_isPatternLength() {
+        final byte[] data = "abcabcabcab".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(3, new WorkUnit(data, data.length, 0).findPeriod(64));
+    }
+
+    @Test
+    void findPeriod_patternLongerThanMax_isZero() {
+        final byte[] data = "abcdabcdabcd".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0, new WorkUnit(data, data.length, 0).findPeriod(3));
+    }
+
+    @Test
+    void findPeriod_noRepetition_isZero() {
+        final byte[] data = "abcdefgh".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0, new WorkUnit(data, data.length, 0).findPeriod(64));
+    }
+}
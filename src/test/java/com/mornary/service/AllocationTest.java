@@ -0,0 +1,197 @@
+package com.mornary.service;
+
+import com.mornary.model.OperationSize;
+import com.mornary.model.WorkUnit;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation regression tests for {@link EncodeService} and {@link DecodeService}. Each test encodes or decodes a fixed payload
+ * on the test thread, measures the bytes the thread allocated with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, and asserts that the bytes allocated per KB of payload
+ * are within the threshold in allocation-thresholds.properties. The measured figures are printed, so that a change that moves
+ * them can update the thresholds in the same commit.
+ *
+ * @author John Mortimore
+ */
+public class AllocationTest {
+
+    private static final int WORK_UNIT_SIZE = 1024;
+
+    /**
+     * The number of work units encoded or decoded before measuring, so that class loading, the JIT, and the candidate cache do
+     * not count towards the allocation.
+     */
+    private static final int WARM_UP_WORK_UNITS = 16;
+
+    private static final int MEASURED_WORK_UNITS = 32;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final EncodeService SERVICE;
+
+    private static final Properties THRESHOLDS = new Properties();
+
+    static {
+        try (InputStream is = AllocationTest.class.getResourceAsStream("/allocation-thresholds.properties")) {
+            SERVICE = new EncodeService(WORK_UNIT_SIZE, 1, false);
+            THRESHOLDS.load(is);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void encodeWorkUnit_text_withinThreshold() throws IOException {
+        assertEncodeWithinThreshold("text", readTextPayload());
+    }
+
+    @Test
+    public void encodeWorkUnit_random_withinThreshold() {
+        assertEncodeWithinThreshold("random", createRandomPayload());
+    }
+
+    @Test
+    public void decode_text_withinThreshold() throws IOException {
+        assertDecodeWithinThreshold("text", readTextPayload());
+    }
+
+    @Test
+    public void decode_random_withinThreshold() throws IOException {
+        assertDecodeWithinThreshold("random", createRandomPayload());
+    }
+
+    /**
+     * Encodes the payload one work unit at a time and asserts the bytes allocated per KB.
+     *
+     * @param payloadName The name of the payload in the thresholds file.
+     * @param payload     The payload. Must hold at least {@link #WARM_UP_WORK_UNITS} + {@link #MEASURED_WORK_UNITS} work units.
+     */
+    private static void assertEncodeWithinThreshold(String payloadName, byte[] payload) {
+        assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(), "Thread allocation measurement is not supported");
+
+        final WorkUnit[] workUnits = splitIntoWorkUnits(payload);
+        for (int i = 0; i < WARM_UP_WORK_UNITS; i++) {
+            SERVICE.encodeWorkUnit(workUnits[i], OperationSize.LARGE);
+        }
+
+        final long before = allocatedBytes();
+        for (int i = WARM_UP_WORK_UNITS; i < workUnits.length; i++) {
+            SERVICE.encodeWorkUnit(workUnits[i], OperationSize.LARGE);
+        }
+        final long allocated = allocatedBytes() - before;
+
+        assertWithinThreshold("encode." + payloadName, allocated, MEASURED_WORK_UNITS);
+    }
+
+    /**
+     * Encodes the payload, then decodes it and asserts the bytes allocated per KB of decoded payload.
+     *
+     * @param payloadName The name of the payload in the thresholds file.
+     * @param payload     The payload. Must hold at least {@link #WARM_UP_WORK_UNITS} + {@link #MEASURED_WORK_UNITS} work units.
+     */
+    private static void assertDecodeWithinThreshold(String payloadName, byte[] payload) throws IOException {
+        assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(), "Thread allocation measurement is not supported");
+
+        final byte[] warmUpPayload = Arrays.copyOf(payload, WARM_UP_WORK_UNITS * WORK_UNIT_SIZE);
+        final byte[] measuredPayload = Arrays.copyOfRange(payload, WARM_UP_WORK_UNITS * WORK_UNIT_SIZE, payload.length);
+        final List<String> morse = SERVICE.encodeAll(List.of(warmUpPayload, measuredPayload));
+        final byte[] warmUpMorse = morse.get(0).getBytes(StandardCharsets.US_ASCII);
+        final byte[] measuredMorse = morse.get(1).getBytes(StandardCharsets.US_ASCII);
+
+        final DecodeService decodeService = new DecodeService(WORK_UNIT_SIZE);
+        decodeService.decode(new ByteArrayInputStream(warmUpMorse), OutputStream.nullOutputStream(), -1, false, false);
+
+        final PreallocatedOutputStream output = new PreallocatedOutputStream();
+        final InputStream input = new ByteArrayInputStream(measuredMorse);
+        final long before = allocatedBytes();
+        decodeService.decode(input, output, -1, false, false);
+        final long allocated = allocatedBytes() - before;
+
+        assertArrayEquals(measuredPayload, output.toByteArray(), "Decoded payload does not match");
+        assertWithinThreshold("decode." + payloadName, allocated, MEASURED_WORK_UNITS);
+    }
+
+    /**
+     * Prints the bytes allocated per KB of payload, and asserts that they are within the threshold.
+     *
+     * @param key       The key of the threshold.
+     * @param allocated The bytes allocated.
+     * @param kilobytes The KB of payload that were processed.
+     */
+    private static void assertWithinThreshold(String key, long allocated, int kilobytes) {
+        final String threshold = THRESHOLDS.getProperty(key);
+        assertNotNull(threshold, "No allocation threshold for " + key);
+
+        final long bytesPerKilobyte = allocated / kilobytes;
+        System.out.printf("Allocation: %-22s %,10d bytes/KB (threshold %,d)%n", key, bytesPerKilobyte, Long.parseLong(threshold));
+        assertTrue(bytesPerKilobyte <= Long.parseLong(threshold), () -> key + " allocated " + bytesPerKilobyte
+            + " bytes/KB, over its threshold of " + threshold + ". Update allocation-thresholds.properties if this is expected.");
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static WorkUnit[] splitIntoWorkUnits(byte[] payload) {
+        final WorkUnit[] workUnits = new WorkUnit[payload.length / WORK_UNIT_SIZE];
+        for (int i = 0; i < workUnits.length; i++) {
+            workUnits[i] = new WorkUnit(Arrays.copyOfRange(payload, i * WORK_UNIT_SIZE, (i + 1) * WORK_UNIT_SIZE), WORK_UNIT_SIZE, i);
+        }
+        return workUnits;
+    }
+
+    private static byte[] readTextPayload() throws IOException {
+        try (InputStream is = AllocationTest.class.getResourceAsStream("/payloads/512kb.txt")) {
+            assertNotNull(is);
+            return is.readNBytes((WARM_UP_WORK_UNITS + MEASURED_WORK_UNITS) * WORK_UNIT_SIZE);
+        }
+    }
+
+    private static byte[] createRandomPayload() {
+        final byte[] payload = new byte[(WARM_UP_WORK_UNITS + MEASURED_WORK_UNITS) * WORK_UNIT_SIZE];
+        new Random(46).nextBytes(payload);
+        return payload;
+    }
+
+    /**
+     * An output stream that keeps what is written to it, like {@link java.io.ByteArrayOutputStream}, but into a buffer that is
+     * allocated up front, so that growing it does not count towards the decoder's allocation.
+     */
+    private static class PreallocatedOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[MEASURED_WORK_UNITS * WORK_UNIT_SIZE];
+        private int size = 0;
+
+        @Override
+        public void write(int b) {
+            this.buffer[this.size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            System.arraycopy(b, off, this.buffer, this.size, len);
+            this.size += len;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(this.buffer, this.size);
+        }
+    }
+}
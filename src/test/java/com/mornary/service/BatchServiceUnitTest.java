@@ -0,0 +1,105 @@
+package com.mornary.service;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for {@link BatchService}.
+ *
+ * @author John Mortimore
+ */
+public class BatchServiceUnitTest {
+
+    private static final EncodeService ENCODE_SERVICE;
+    private static final DecodeService DECODE_SERVICE = new DecodeService(1024);
+
+    static {
+        try {
+            ENCODE_SERVICE = new EncodeService(1024, 10, false);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final PrintStream standardOut = System.out;
+    private final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+
+    private Path workingDirectory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        System.setOut(new PrintStream(outputStreamCaptor));
+        this.workingDirectory = Files.createTempDirectory("mornary-batch");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        System.setOut(standardOut);
+        try (Stream<Path> paths = Files.walk(this.workingDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_directory_allFilesRoundTrip() throws IOException, URISyntaxException {
+        final Path payloads = Files.createDirectories(this.workingDirectory.resolve("payloads"));
+        for (String payload : List.of("/payloads/SmallTextFile.txt", "/payloads/5kb.txt")) {
+            final File file = new File(getClass().getResource(payload).toURI());
+            Files.copy(file.toPath(), payloads.resolve(file.getName()));
+        }
+        final File encoded = this.workingDirectory.resolve("encoded").toFile();
+        final File decoded = this.workingDirectory.resolve("decoded").toFile();
+
+        final BatchService encodeBatch = new BatchService(ENCODE_SERVICE, null, 4);
+        final BatchService decodeBatch = new BatchService(null, DECODE_SERVICE, 4);
+
+        assertEquals(0, encodeBatch.encode(payloads.toString(), encoded));
+        assertEquals(0, decodeBatch.decode(encoded.getPath(), decoded));
+
+        for (String name : List.of("SmallTextFile.txt", "5kb.txt")) {
+            final String encodedContents = Files.readString(new File(encoded, name).toPath());
+            assertTrue(encodedContents.matches("^[.\\- /]+$")); // Only dots, dashes, spaces, and slashes.
+            assertTrue(FileUtils.contentEquals(payloads.resolve(name).toFile(), new File(decoded, name)));
+        }
+    }
+
+    @Test
+    public void resolveInputs_glob_matchingFilesOnly() throws IOException {
+        final Path nested = Files.createDirectories(this.workingDirectory.resolve("logs").resolve("nested"));
+        Files.writeString(this.workingDirectory.resolve("logs").resolve("a.log"), "a");
+        Files.writeString(this.workingDirectory.resolve("logs").resolve("b.txt"), "b");
+        Files.writeString(nested.resolve("c.log"), "c");
+
+        final List<File> topLevel = BatchService.resolveInputs(this.workingDirectory + "/logs/*.log");
+        final List<File> recursive = BatchService.resolveInputs(this.workingDirectory + "/logs/**.log");
+
+        assertEquals(List.of("a.log"), topLevel.stream().map(File::getName).toList());
+        assertEquals(List.of("a.log", "c.log"), recursive.stream().map(File::getName).toList());
+    }
+
+    @Test
+    public void resolveInputs_fileList_listedFilesOnly() throws IOException {
+        final Path list = this.workingDirectory.resolve("files.txt");
+        Files.writeString(list, "first.bin\n\n  second.bin  \n");
+
+        final List<File> files = BatchService.resolveInputs(list.toString());
+
+        assertEquals(List.of(new File("first.bin"), new File("second.bin")), files);
+    }
+}
@@ -1,5 +1,13 @@
 package com.mornary.service;
 
+import com.mornary.compression.PayloadHeader;
+import com.mornary.model.Alphabet;
+import com.mornary.model.EncodeOptions;
+import com.mornary.model.Encoding;
+import com.mornary.model.EntryStatistics;
+import com.mornary.model.MorseDictionary;
+import com.mornary.model.Optimization;
+import com.mornary.utility.MorseUtility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,8 +19,19 @@ import java.io.PrintStream;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -92,6 +111,90 @@ public class EncodeServiceUnitTest {
         }
     }
 
+    @Test
+    public void encodeBytes_aboveParallelThreshold_outputDecodesToInput() throws IOException {
+        final byte[] input = new byte[EncodeService.PARALLEL_ENCODING_THRESHOLD + 5000];
+        new Random(42).nextBytes(input);
+
+        final File encoded = new File("testOut.txt");
+        final File decoded = new File("testOut.bin");
+
+        SERVICE.encode(input, encoded);
+        new DecodeService(1024).decode(encoded, decoded);
+
+        assertTrue(new String(Files.readAllBytes(encoded.toPath())).matches("^[.\\- /]+$"));
+        assertArrayEquals(input, Files.readAllBytes(decoded.toPath()));
+
+        if (!encoded.delete() || !decoded.delete()) { //delete the output files after test runs
+            fail("Output files could not be deleted after test completion");
+        }
+    }
+
+    @Test
+    public void encodeBytes_repeatingPattern_outputDecodesToInput() throws IOException {
+        // Zero-filled, then a 3-byte pattern that doesn't divide the work unit size, then a final partial work unit.
+        final byte[] input = new byte[10 * 1024 + 100];
+        for (int i = 4096; i < input.length; i++) {
+            input[i] = (byte) "abc".charAt(i % 3);
+        }
+
+        final File encoded = new File("testOut.txt");
+        final File decoded = new File("testOut.bin");
+
+        SERVICE.encode(input, encoded);
+        new DecodeService(1024).decode(encoded, decoded);
+
+        assertTrue(new String(Files.readAllBytes(encoded.toPath())).matches("^[.\\- /]+$"));
+        assertArrayEquals(input, Files.readAllBytes(decoded.toPath()));
+
+        if (!encoded.delete() || !decoded.delete()) { //delete the output files after test runs
+            fail("Output files could not be deleted after test completion");
+        }
+    }
+
+    @Test
+    public void getBlockEncodings_zeroFilledBlock_encodingsDiffer() {
+        final EncodeService.EncodedText[] encodings = SERVICE.getBlockEncodings(new byte[EncodeService.MIN_BLOCK_SIZE]);
+
+        assertEquals(EncodeService.BLOCK_ENCODINGS, encodings.length);
+        assertEquals(EncodeService.BLOCK_ENCODINGS, Arrays.stream(encodings).map(EncodeService.EncodedText::morse).distinct().count());
+    }
+
+    @Test
+    public void getBlockEncodings_tooManyPatterns_newPatternsNotPrecomputed() throws IOException {
+        try (EncodeService service = new EncodeService(1024, 1, SERVICE.getDictionary(), EncodeOptions.DEFAULT)) {
+            final byte[][] blocks = new byte[EncodeService.MAX_BLOCK_PATTERNS + 1][EncodeService.MIN_BLOCK_SIZE];
+            for (int i = 0; i < blocks.length; i++) {
+                Arrays.fill(blocks[i], (byte) i);
+            }
+
+            final EncodeService.EncodedText[] first = service.getBlockEncodings(blocks[0]);
+            for (int i = 1; i < EncodeService.MAX_BLOCK_PATTERNS; i++) {
+                assertNotNull(service.getBlockEncodings(blocks[i]));
+            }
+
+            assertNull(service.getBlockEncodings(blocks[EncodeService.MAX_BLOCK_PATTERNS]));
+            assertSame(first, service.getBlockEncodings(blocks[0]));
+        }
+    }
+
+    @Test
+    public void encodeBytes_startsWithPayloadHeader_outputDecodesToInput() throws IOException {
+        final byte[] input = PayloadHeader.create(PayloadHeader.DEFLATE); // Not actually compressed.
+
+        final File encoded = new File("testOut.txt");
+        final File decoded = new File("testOut.bin");
+
+        SERVICE.encode(input, encoded);
+        new DecodeService(1024).decode(encoded, decoded);
+
+        assertArrayEquals(input, Files.readAllBytes(decoded.toPath()));
+
+        if (!encoded.delete() || !decoded.delete()) { //delete the output files after test runs
+            fail("Output files could not be deleted after test completion");
+        }
+    }
+
     /* File Input Methods - Small Text Payload */
 
     @Test
@@ -144,4 +247,195 @@ public class EncodeServiceUnitTest {
         }
     }
 
+    @Test
+    public void encodeText_memoryBudget_loadsDictionariesThatFit() throws IOException {
+        final EncodeService budgeted = new EncodeService(1024, 2, false, EncodeOptions.DEFAULT.withMemoryBudget(32L << 20));
+        assertTrue(budgeted.getMemoryPlan().dictionaryCount() < EncodeService.getNumberOfDictionaries());
+        assertTrue(budgeted.getMemoryPlan().estimatedBytes() <= 32L << 20);
+
+        final String input = "Hello World!";
+        final File encoded = new File("testOut.txt");
+        final File decoded = new File("testOut.bin");
+
+        budgeted.encode(input, encoded);
+        new DecodeService(1024).decode(encoded, decoded);
+
+        assertEquals(input, Files.readString(decoded.toPath()));
+
+        if (!encoded.delete() || !decoded.delete()) { //delete the output files after test runs
+            fail("Output files could not be deleted after test completion");
+        }
+    }
+
+    @Test
+    public void encodeBytes_optimizeSize_smallerOutputDecodesToInput() throws IOException {
+        final byte[] input = new byte[16 * 1024];
+        new Random(11).nextBytes(input);
+
+        try (EncodeService sizeOptimized = new EncodeService(1024, 2, false,
+            EncodeOptions.DEFAULT.withOptimization(Optimization.SIZE))) {
+            final String words = SERVICE.encodeAll(List.of(input)).get(0);
+            final String size = sizeOptimized.encodeAll(List.of(input)).get(0);
+
+            assertTrue(size.length() < words.length() * 0.9,
+                () -> "Size optimized output was " + size.length() + " characters, words output was " + words.length());
+
+            final File decoded = new File("testOut.bin");
+            new DecodeService(1024).decode(size, decoded);
+            assertArrayEquals(input, Files.readAllBytes(decoded.toPath()));
+
+            if (!decoded.delete()) { //delete the output file after test runs
+                fail("Output file " + decoded.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeBytes_extendedAlphabets_smallerOutputDecodesToInput() throws IOException {
+        final byte[] input = new byte[16 * 1024];
+        new Random(13).nextBytes(input);
+
+        // The reduced set of dictionaries leaves more of the input to single characters, which is where the extended alphabets help.
+        final EncodeOptions sizeOptions = EncodeOptions.DEFAULT.withOptimization(Optimization.SIZE);
+        try (EncodeService latin = new EncodeService(1024, 2, true, sizeOptions);
+             EncodeService extended = new EncodeService(1024, 2, true,
+                 sizeOptions.withAlphabets(Set.of(Alphabet.PUNCTUATION, Alphabet.CYRILLIC, Alphabet.WABUN)))) {
+            final String latinOutput = latin.encodeAll(List.of(input)).get(0);
+            final String extendedOutput = extended.encodeAll(List.of(input)).get(0);
+
+            assertTrue(extendedOutput.length() < latinOutput.length() * 0.97, () -> "Extended alphabet output was "
+                + extendedOutput.length() + " characters, Latin output was " + latinOutput.length());
+
+            final File decoded = new File("testOut.bin");
+            new DecodeService(1024).decode(extendedOutput, decoded);
+            assertArrayEquals(input, Files.readAllBytes(decoded.toPath()));
+
+            if (!decoded.delete()) { //delete the output file after test runs
+                fail("Output file " + decoded.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeBytes_optimizeSizeExtendedAlphabet_mostlyDictionaryWords() throws IOException {
+        final byte[] input = new byte[16 * 1024];
+        new Random(13).nextBytes(input);
+
+        final Set<String> extendedCodes = new HashSet<>();
+        for (Encoding encoding : MorseUtility.getEncodings(Alphabet.PUNCTUATION)) {
+            extendedCodes.add(encoding.getCode());
+        }
+        for (Encoding encoding : MorseUtility.getEncodings(Alphabet.LATIN)) {
+            extendedCodes.remove(encoding.getCode());
+        }
+
+        try (EncodeService punctuation = new EncodeService(1024, 2, true, EncodeOptions.DEFAULT
+            .withOptimization(Optimization.SIZE).withAlphabets(Set.of(Alphabet.PUNCTUATION)))) {
+            final String[] segments = punctuation.encodeAll(List.of(input)).get(0).split(" / ");
+
+            int extendedCharacters = 0;
+            for (String segment : segments) {
+                if (extendedCodes.contains(segment)) {
+                    extendedCharacters++;
+                }
+            }
+            // A lone punctuation mark encodes more bits per character than most short words, and made up a fifth of the output
+            // before its size score was scaled down.
+            final int count = extendedCharacters;
+            assertTrue(count < segments.length * 0.1,
+                () -> count + " of " + segments.length + " text segments were single punctuation marks");
+        }
+    }
+
+    /* Reuse */
+
+    @Test
+    public void encodeAll_entryStatisticsEnabled_winnersWereCandidates() throws IOException {
+        final byte[] input = new byte[8 * 1024];
+        new Random(48).nextBytes(input);
+
+        final MorseDictionary dictionary = MorseDictionary.getInstance(EncodeService.DICTIONARIES_REDUCED_SET);
+        final EntryStatistics statistics = dictionary.enableEntryStatistics();
+        assertSame(statistics, dictionary.getEntryStatistics());
+
+        try (EncodeService service = new EncodeService(1024, 2, dictionary, EncodeOptions.DEFAULT)) {
+            service.encodeAll(List.of(input));
+        }
+
+        long wins = 0;
+        for (int id = 0; id < statistics.size(); id++) {
+            assertTrue(statistics.getWins(id) <= statistics.getCandidates(id), "Entry " + id + " won more often than it matched");
+            wins += statistics.getWins(id);
+        }
+        assertTrue(wins > 0);
+    }
+
+    @Test
+    public void getBlockEncodings_entryStatisticsEnabled_notRecorded() throws IOException {
+        final MorseDictionary dictionary = MorseDictionary.getInstance(EncodeService.DICTIONARIES_REDUCED_SET);
+        final EntryStatistics statistics = dictionary.enableEntryStatistics();
+        final long before = countRecords(statistics);
+
+        try (EncodeService service = new EncodeService(1024, 1, dictionary, EncodeOptions.DEFAULT)) {
+            service.getBlockEncodings(new byte[64]);
+        }
+
+        assertEquals(before, countRecords(statistics));
+    }
+
+    @Test
+    public void encodeAll_mixedSizes_eachOutputDecodesToItsInput() throws IOException {
+        final Random random = new Random(7);
+        final List<byte[]> inputs = new ArrayList<>();
+        for (int size : new int[] {0, 12, 1024, 5000, EncodeService.PARALLEL_ENCODING_THRESHOLD + 3000}) {
+            final byte[] input = new byte[size];
+            random.nextBytes(input);
+            inputs.add(input);
+        }
+
+        final List<String> encoded = SERVICE.encodeAll(inputs);
+        assertEquals(inputs.size(), encoded.size());
+
+        final File decoded = new File("testOut.bin");
+        final DecodeService decodeService = new DecodeService(1024);
+        for (int i = 0; i < inputs.size(); i++) {
+            assertTrue(encoded.get(i).matches("^[.\\- /]*$"));
+            decodeService.decode(encoded.get(i), decoded);
+            assertArrayEquals(inputs.get(i), Files.readAllBytes(decoded.toPath()), "Input " + i);
+        }
+
+        if (!decoded.delete()) { //delete the output file after test runs
+            fail("Output file " + decoded.getName() + " could not be deleted after test completion");
+        }
+    }
+
+    @Test
+    public void constructor_sameDictionaries_shareLoadedDictionary() throws IOException {
+        try (
+            EncodeService first = new EncodeService(1024, 2, true);
+            EncodeService second = new EncodeService(512, 4, true, EncodeOptions.DEFAULT.withCompress(true));
+            EncodeService embedded = new EncodeService(1024, 2, first.getDictionary(), EncodeOptions.DEFAULT)
+        ) {
+            assertSame(first.getDictionary(), second.getDictionary());
+            assertSame(first.getDictionary(), embedded.getDictionary());
+            assertSame(SERVICE.getDictionary(), MorseDictionary.getInstance(EncodeService.DICTIONARIES));
+        }
+    }
+
+    @Test
+    public void encode_closedService_throwsIllegalState() throws IOException {
+        final EncodeService closed = new EncodeService(1024, 2, true);
+        closed.close();
+
+        assertThrows(IllegalStateException.class, () -> closed.encodeAll(List.of(new byte[10])));
+    }
+
+    private static long countRecords(EntryStatistics statistics) {
+        long records = 0;
+        for (int id = 0; id < statistics.size(); id++) {
+            records += statistics.getCandidates(id) + statistics.getWins(id);
+        }
+        return records;
+    }
+
 }
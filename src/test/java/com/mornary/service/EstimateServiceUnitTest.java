@@ -0,0 +1,106 @@
+package com.mornary.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.model.EncodeEstimate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test class for {@link EstimateService}.
+ *
+ * @author John Mortimore
+ */
+public class EstimateServiceUnitTest {
+
+    private static final EncodeService SERVICE;
+
+    static {
+        try {
+            SERVICE = new EncodeService(1024, 10, false);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final PrintStream standardOut = System.out;
+    private final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUp() {
+        System.setOut(new PrintStream(outputStreamCaptor));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setOut(standardOut);
+    }
+
+    @Test
+    public void estimate_fewerWorkUnitsThanSample_encodesEveryWorkUnit() throws IOException, URISyntaxException {
+        final File input = new File(getClass().getResource("/payloads/5kb.txt").toURI());
+
+        final EncodeEstimate estimate = new EstimateService(SERVICE).estimate(input);
+
+        assertEquals(input.length(), estimate.inputBytes());
+        assertEquals(estimate.workUnits(), estimate.sampledWorkUnits());
+        assertEquals(estimate.outputBytes().estimate(), estimate.outputBytes().lower());
+        assertEquals(estimate.outputBytes().estimate(), estimate.outputBytes().upper());
+        assertWithinPercent(encodedLength(input), estimate.outputBytes().estimate(), 2);
+    }
+
+    @Test
+    public void estimate_sampledWorkUnits_outputSizeWithinOnePercent() throws IOException, URISyntaxException {
+        final File input = new File(getClass().getResource("/payloads/512kb.txt").toURI());
+        final File estimateFile = new File("testEstimate.json");
+
+        final EstimateService estimateService = new EstimateService(SERVICE, 32);
+        final EncodeEstimate estimate = estimateService.estimate(input);
+        estimateService.writeEstimate(estimate, estimateFile);
+
+        assertEquals(512, estimate.workUnits());
+        assertEquals(32, estimate.sampledWorkUnits());
+        assertEquals("LARGE", estimate.operationSize());
+        // Ties between text segments are broken at random, so the actual size varies from encode to encode by about as much as
+        // the interval is wide; compare against it with some slack instead.
+        assertTrue(estimate.outputBytes().lower() <= estimate.outputBytes().estimate()
+            && estimate.outputBytes().estimate() <= estimate.outputBytes().upper());
+        assertWithinPercent(encodedLength(input), estimate.outputBytes().estimate(), 1);
+        assertTrue(estimate.encodeMillis().lower() > 0);
+        assertTrue(estimate.peakHeapBytes() > 0);
+
+        final JsonNode json = new ObjectMapper().readTree(estimateFile);
+        assertEquals(estimate.workUnits(), json.get("workUnits").asLong());
+        assertTrue(json.get("outputBytes").has("upper"));
+
+        if (!estimateFile.delete()) {
+            fail("Output file " + estimateFile.getName() + " could not be deleted after test completion");
+        }
+    }
+
+    private static long encodedLength(File input) throws IOException {
+        final File output = new File("testOut.txt");
+        SERVICE.encode(input, output);
+        final long length = output.length();
+        if (!output.delete()) { //delete the output file after test runs
+            fail("Output file " + output.getName() + " could not be deleted after test completion");
+        }
+        return length;
+    }
+
+    private static void assertWithinPercent(double expected, double actual, double percent) {
+        assertTrue(Math.abs(actual - expected) <= expected * percent / 100,
+            () -> actual + " is not within " + percent + "% of " + expected);
+    }
+}
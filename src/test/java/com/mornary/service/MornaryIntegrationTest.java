@@ -1,17 +1,34 @@
 package com.mornary.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.model.ByteRange;
+import com.mornary.model.Checkpoint;
+import com.mornary.model.EncodeOptions;
+import com.mornary.model.MorseIndex;
+import com.mornary.model.Shard;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -75,4 +92,255 @@ public class MornaryIntegrationTest {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/payloads/SmallTextFile.txt",
+            "/payloads/5kb.txt",
+            "/payloads/512kb.txt"
+    })
+    public void encodeAndDecode_streams_successful(String inputFile) throws IOException, URISyntaxException {
+        final File input = new File(getClass().getResource(inputFile).toURI());
+
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+
+        try (InputStream is = new FileInputStream(input)) {
+            ENCODE_SERVICE.encode(is, outputEncode);
+        }
+        try (InputStream is = new FileInputStream(outputEncode)) {
+            DECODE_SERVICE.decode(is, outputDecode);
+        }
+
+        assertTrue(FileUtils.contentEquals(input, outputDecode));
+
+        if (!outputEncode.delete()) { //delete the output file after test runs
+            fail("Output file " + outputEncode.getName() + " could not be deleted after test completion");
+        }
+        if (!outputDecode.delete()) { //delete the output file after test runs
+            fail("Output file " + outputDecode.getName() + " could not be deleted after test completion");
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/payloads/SmallTextFile.txt",
+            "/payloads/512kb.txt"
+    })
+    public void encodeAndDecode_compressed_successful(String inputFile) throws IOException, URISyntaxException {
+        final EncodeService compressingService = new EncodeService(1024, 10, true, EncodeOptions.DEFAULT.withCompress(true));
+        final File input = new File(getClass().getResource(inputFile).toURI());
+
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+
+        compressingService.encode(input, outputEncode);
+        DECODE_SERVICE.decode(outputEncode, outputDecode);
+
+        assertTrue(FileUtils.contentEquals(input, outputDecode));
+
+        if (!outputEncode.delete()) { //delete the output file after test runs
+            fail("Output file " + outputEncode.getName() + " could not be deleted after test completion");
+        }
+        if (!outputDecode.delete()) { //delete the output file after test runs
+            fail("Output file " + outputDecode.getName() + " could not be deleted after test completion");
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_resumed_successful() throws IOException, URISyntaxException {
+        final EncodeService resumingService = new EncodeService(1024, 10, true, EncodeOptions.DEFAULT.withResume(true));
+        final File input = new File(getClass().getResource("/payloads/5kb.txt").toURI());
+
+        final File prefix = new File("testPrefix.txt");
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+        final File checkpointFile = CheckpointService.getCheckpointFile(outputEncode);
+
+        // Simulate an interrupted encode: the first two work units were written and checkpointed, then part of a third.
+        Files.write(prefix.toPath(), Arrays.copyOf(Files.readAllBytes(input.toPath()), 2048));
+        ENCODE_SERVICE.encode(prefix, outputEncode);
+        final long outputBytes = outputEncode.length();
+        Files.write(outputEncode.toPath(), " / -.-. ..- -".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        new ObjectMapper().writeValue(checkpointFile, new Checkpoint(input.getAbsolutePath(), input.length(),
+            input.lastModified(), Checkpoint.fingerprint(input, 1024), 1024, false, null, 2, outputBytes));
+
+        resumingService.encode(input, outputEncode);
+        DECODE_SERVICE.decode(outputEncode, outputDecode);
+
+        assertTrue(FileUtils.contentEquals(input, outputDecode));
+        assertFalse(checkpointFile.exists());
+
+        for (File file : new File[] {prefix, outputEncode, outputDecode}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/payloads/SmallTextFile.txt",
+            "/payloads/5kb.txt"
+    })
+    public void encodeAndDecode_shardedAndMerged_successful(String inputFile) throws IOException, URISyntaxException {
+        final File input = new File(getClass().getResource(inputFile).toURI());
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+
+        final List<File> shardOutputs = new ArrayList<>();
+        for (int index = 1; index <= 3; index++) {
+            final File shardOutput = new File("testShard" + index + ".txt");
+            new EncodeService(1024, 10, true, EncodeOptions.DEFAULT.withShard(new Shard(index, 3))).encode(input, shardOutput);
+            shardOutputs.add(shardOutput);
+        }
+        new MergeService().merge(shardOutputs, outputEncode);
+        DECODE_SERVICE.decode(outputEncode, outputDecode);
+
+        assertTrue(FileUtils.contentEquals(input, outputDecode));
+
+        shardOutputs.add(outputEncode);
+        shardOutputs.add(outputDecode);
+        for (File file : shardOutputs) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_indexedRanges_successful() throws IOException, URISyntaxException {
+        final EncodeService indexingService = new EncodeService(1024, 10, true, EncodeOptions.DEFAULT.withIndex(true));
+        final File input = new File(getClass().getResource("/payloads/512kb.txt").toURI());
+        final File outputEncode = new File("testEncode.txt");
+
+        indexingService.encode(input, outputEncode);
+
+        assertRangesDecode(Files.readAllBytes(input.toPath()), outputEncode);
+
+        for (File file : new File[] {outputEncode, MorseIndex.getIndexFile(outputEncode)}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_resumedIndexedRanges_successful() throws IOException, URISyntaxException {
+        final EncodeService indexingService = new EncodeService(1024, 10, true,
+            EncodeOptions.DEFAULT.withResume(true).withIndex(true));
+        final File input = new File(getClass().getResource("/payloads/512kb.txt").toURI());
+
+        final File prefix = new File("testPrefix.txt");
+        final File outputEncode = new File("testEncode.txt");
+
+        // Simulate an interrupted encode of the first 40 work units, so that the index of those is recovered from the output.
+        Files.write(prefix.toPath(), Arrays.copyOf(Files.readAllBytes(input.toPath()), 40 * 1024));
+        ENCODE_SERVICE.encode(prefix, outputEncode);
+        new ObjectMapper().writeValue(CheckpointService.getCheckpointFile(outputEncode), new Checkpoint(input.getAbsolutePath(),
+            input.length(), input.lastModified(), Checkpoint.fingerprint(input, 1024), 1024, false, null, 40,
+            outputEncode.length()));
+
+        indexingService.encode(input, outputEncode);
+
+        assertRangesDecode(Files.readAllBytes(input.toPath()), outputEncode);
+
+        for (File file : new File[] {prefix, outputEncode, MorseIndex.getIndexFile(outputEncode)}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_appendedGrowingInput_successful() throws IOException, URISyntaxException {
+        final EncodeService appendingService = new EncodeService(1024, 10, true,
+            EncodeOptions.DEFAULT.withAppend(true).withIndex(true));
+        final byte[] content = Files.readAllBytes(new File(getClass().getResource("/payloads/512kb.txt").toURI()).toPath());
+
+        final File input = new File("testGrowing.txt");
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+        final File stateFile = CheckpointService.getStateFile(outputEncode);
+
+        // The input grows twice, each time from the middle of a work unit.
+        byte[] previousOutput = new byte[0];
+        long previousOutputBytes = 0;
+        for (int length : new int[] {100_000, 300_500, content.length}) {
+            Files.write(input.toPath(), Arrays.copyOf(content, length));
+            appendingService.encode(input, outputEncode);
+
+            final byte[] output = Files.readAllBytes(outputEncode.toPath());
+            // The output of the full work units of the previous encode is kept as it was.
+            assertArrayEquals(Arrays.copyOf(previousOutput, (int) previousOutputBytes),
+                Arrays.copyOf(output, (int) previousOutputBytes));
+            previousOutput = output;
+            previousOutputBytes = new ObjectMapper().readValue(stateFile, Checkpoint.class).outputBytes();
+
+            DECODE_SERVICE.decode(outputEncode, outputDecode);
+            assertArrayEquals(Arrays.copyOf(content, length), Files.readAllBytes(outputDecode.toPath()));
+        }
+
+        assertRangesDecode(content, outputEncode);
+
+        for (File file : new File[] {input, outputEncode, stateFile, MorseIndex.getIndexFile(outputEncode)}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    @Test
+    public void encodeAndDecode_appendedInputRewrittenLarger_encodedAgain() throws IOException, URISyntaxException {
+        final EncodeService appendingService = new EncodeService(1024, 10, true, EncodeOptions.DEFAULT.withAppend(true));
+        final byte[] content = Files.readAllBytes(new File(getClass().getResource("/payloads/512kb.txt").toURI()).toPath());
+
+        final File input = new File("testRewritten.txt");
+        final File outputEncode = new File("testEncode.txt");
+        final File outputDecode = new File("testDecode.txt");
+        final File stateFile = CheckpointService.getStateFile(outputEncode);
+
+        // Simulate a log rotated with copytruncate: the input is rewritten in place with other data, and has grown past its old
+        // size by the next encode.
+        Files.write(input.toPath(), Arrays.copyOf(content, 100_000));
+        appendingService.encode(input, outputEncode);
+        final byte[] rewritten = Arrays.copyOfRange(content, 200_000, 350_000);
+        Files.write(input.toPath(), rewritten);
+        appendingService.encode(input, outputEncode);
+
+        DECODE_SERVICE.decode(outputEncode, outputDecode);
+        assertArrayEquals(rewritten, Files.readAllBytes(outputDecode.toPath()));
+
+        for (File file : new File[] {input, outputEncode, outputDecode, stateFile}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+
+    /**
+     * Decodes ranges at the start, end, and on either side of index entries of an indexed output, and checks them against the
+     * input.
+     *
+     * @param input        The original input.
+     * @param outputEncode The indexed output.
+     */
+    private void assertRangesDecode(byte[] input, File outputEncode) throws IOException {
+        final File outputDecode = new File("testDecode.txt");
+        final long[][] ranges = {
+            {0, 100}, {16 * 1024 - 10, 20}, {20_000, 1}, {40 * 1024 - 1, 2}, {300_000, 5000}, {input.length - 10, 100},
+            {input.length, 10}, {1234, 0}
+        };
+
+        for (long[] range : ranges) {
+            DECODE_SERVICE.decode(outputEncode, outputDecode, new ByteRange(range[0], range[1]));
+
+            final int end = (int) Math.min(input.length, range[0] + range[1]);
+            assertArrayEquals(Arrays.copyOfRange(input, (int) range[0], end), Files.readAllBytes(outputDecode.toPath()),
+                "Range " + range[0] + ":" + range[1]);
+        }
+
+        if (!outputDecode.delete()) { //delete the output file after test runs
+            fail("Output file " + outputDecode.getName() + " could not be deleted after test completion");
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.mornary.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mornary.model.RunReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Test class for {@link ReportService}.
+ *
+ * @author John Mortimore
+ */
+public class ReportServiceUnitTest {
+
+    private static final EncodeService SERVICE;
+
+    static {
+        try {
+            SERVICE = new EncodeService(1024, 10, false);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final PrintStream standardOut = System.out;
+    private final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUp() {
+        System.setOut(new PrintStream(outputStreamCaptor));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setOut(standardOut);
+    }
+
+    @Test
+    public void createReport_fileEncode_reportsRun() throws IOException, URISyntaxException {
+        final File input = new File(getClass().getResource("/payloads/5kb.txt").toURI());
+        final File output = new File("testOut.txt");
+        final File reportFile = new File("testReport.json");
+
+        final ReportService reportService = new ReportService();
+        SERVICE.encode(input, output);
+        final RunReport report = reportService.createReport("encode-file", input.getPath(), output, Duration.ofMillis(42));
+        reportService.writeReport(report, reportFile);
+
+        assertEquals(input.length(), report.inputBytes());
+        assertEquals(output.length(), report.outputBytes());
+        assertEquals((long) Math.ceil(input.length() / 1024.0), report.workUnits());
+        assertEquals(42, report.dictionaryLoadMillis());
+        assertTrue(report.segmentsEmitted() > 0);
+        assertTrue(report.fallbackRate() >= 0 && report.fallbackRate() <= 1);
+        assertTrue(report.candidateCacheHits() + report.candidateCacheMisses() > 0);
+        assertEquals(report.workUnits(), report.stages().get("encode").count());
+
+        final JsonNode json = new ObjectMapper().readTree(reportFile);
+        assertEquals("encode-file", json.get("operation").asText());
+        assertEquals(report.inputBytes(), json.get("inputBytes").asLong());
+        assertTrue(json.get("stages").has("reorderWait"));
+
+        for (File file : new File[]{output, reportFile}) {
+            if (!file.delete()) { //delete the output file after test runs
+                fail("Output file " + file.getName() + " could not be deleted after test completion");
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mornary.utility;
+
+import com.mornary.model.Alphabet;
+import com.mornary.model.Encoding;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for {@link MorseUtility}.
+ *
+ * @author John Mortimore
+ */
+public class MorseUtilityTest {
+
+    @Test
+    void toMorseCode_latin_success() {
+        final String input = "Hi there";
+        final String expected = ".... .. / - .... . .-. .";
+
+        final String actual = MorseUtility.toMorseCode(input);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void toMorseCode_extendedAlphabets_usesTheirCodes() {
+        final String input = "don't чаша";
+        final String expected = "-.. --- -. .----. - / ---. .- ---- .-";
+
+        final String actual = MorseUtility.toMorseCode(input, Set.of(Alphabet.LATIN, Alphabet.PUNCTUATION, Alphabet.CYRILLIC));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void toMorseCode_alphabetNotUsed_characterKept() {
+        final String input = "don't";
+        final String expected = "-.. --- -. ' -";
+
+        final String actual = MorseUtility.toMorseCode(input);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void getEncodings_everyAlphabet_uniqueCodes() {
+        for (Alphabet alphabet : Alphabet.values()) {
+            final Encoding[] encodings = MorseUtility.getEncodings(alphabet);
+            final Set<String> codes = new HashSet<>();
+            for (Encoding encoding : encodings) {
+                codes.add(encoding.getCode());
+            }
+
+            assertEquals(encodings.length, codes.size(), alphabet + " has duplicate codes");
+        }
+    }
+}